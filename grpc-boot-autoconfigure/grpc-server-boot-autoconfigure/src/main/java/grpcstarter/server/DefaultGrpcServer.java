@@ -61,7 +61,30 @@ public class DefaultGrpcServer implements GrpcServer, ApplicationEventPublisherA
             List<ServerInterceptor> interceptors,
             List<GrpcServerCustomizer> customizers) {
         ServerBuilder<?> builder = serverBuilder.orElseGet(() -> getDefaultServerBuilder(properties, sslBundles));
+        return configureServerBuilder(builder, properties, services, interceptors, customizers).build();
+    }
 
+    /**
+     * Apply the services, interceptors, inbound size limits and customizers of the gRPC server to the builder.
+     *
+     * <p> Use it to build another server that must behave like the gRPC server, e.g. an in-process server serving
+     * the same services.
+     *
+     * @param builder      server builder
+     * @param properties   gRPC server properties
+     * @param services     services to add
+     * @param interceptors server interceptors, in order
+     * @param customizers  server customizers, in order
+     * @param <T>          server builder type
+     * @return the builder
+     * @since 4.1.0
+     */
+    public static <T extends ServerBuilder<?>> T configureServerBuilder(
+            T builder,
+            GrpcServerProperties properties,
+            List<BindableService> services,
+            List<ServerInterceptor> interceptors,
+            List<GrpcServerCustomizer> customizers) {
         for (var service : services) {
             builder.addService(service);
         }
@@ -84,7 +107,7 @@ public class DefaultGrpcServer implements GrpcServer, ApplicationEventPublisherA
             customizer.customize(builder);
         }
 
-        return builder.build();
+        return builder;
     }
 
     private static ServerBuilder<? extends ServerBuilder<?>> getDefaultServerBuilder(
@@ -3,6 +3,7 @@ package grpcstarter.server;
 import static grpcstarter.server.Util.allInternalServices;
 
 import grpcstarter.server.feature.channelz.Channelz;
+import grpcstarter.server.feature.concurrencylimit.ConcurrencyLimit;
 import grpcstarter.server.feature.exceptionhandling.ExceptionHandling;
 import grpcstarter.server.feature.health.Health;
 import grpcstarter.server.feature.reflection.Reflection;
@@ -59,6 +60,6 @@ public class GrpcServerAutoConfiguration {
     }
 
     @Configuration(proxyBeanMethods = false)
-    @Import({Reflection.class, Health.class, Channelz.class, ExceptionHandling.class})
+    @Import({Reflection.class, Health.class, Channelz.class, ExceptionHandling.class, ConcurrencyLimit.class})
     static class Features {}
 }
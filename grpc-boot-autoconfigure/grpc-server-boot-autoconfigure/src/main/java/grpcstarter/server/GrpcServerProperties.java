@@ -84,6 +84,13 @@ public class GrpcServerProperties {
      */
     private Response response = new Response();
 
+    /**
+     * Adaptive concurrency limit configuration.
+     *
+     * @since 4.1.0
+     */
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
     @Data
     public static class Reflection {
         public static final String PREFIX = GrpcServerProperties.PREFIX + ".reflection";
@@ -220,4 +227,54 @@ public class GrpcServerProperties {
          */
         private Integer maxDescriptionLength = 2048;
     }
+
+    /**
+     * Adaptive concurrency limit of unary calls, the limit follows the measured latency of the calls.
+     *
+     * <p> The limit grows while the latency stays close to the long-term average and shrinks when the latency rises
+     * or calls exceed their deadlines. Calls above the limit are rejected with {@code RESOURCE_EXHAUSTED} before any
+     * application code runs.
+     *
+     * @since 4.1.0
+     */
+    @Data
+    public static class ConcurrencyLimit {
+        public static final String PREFIX = GrpcServerProperties.PREFIX + ".concurrency-limit";
+
+        /**
+         * Whether to enable the adaptive concurrency limit, default false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Whether to limit each method with its own adaptive limit in addition to the global limit, default false.
+         */
+        private boolean perMethod = false;
+
+        /**
+         * Initial limit, default 20.
+         */
+        private int initialLimit = 20;
+
+        /**
+         * Min limit, default 1.
+         */
+        private int minLimit = 1;
+
+        /**
+         * Max limit, default 1000.
+         */
+        private int maxLimit = 1000;
+
+        /**
+         * Latency tolerance, the limit doesn't shrink until the latency exceeds the long-term average latency by this
+         * ratio, default 1.5.
+         */
+        private double rttTolerance = 1.5;
+
+        /**
+         * Smoothing factor of the limit updates, between 0 and 1, smaller values react slower, default 0.2.
+         */
+        private double smoothing = 0.2;
+    }
 }
@@ -0,0 +1,148 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import grpcstarter.server.GrpcServerProperties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limiter, gradient style.
+ *
+ * <p> The limit is adjusted on every completed call by the gradient between the long-term average latency and the
+ * latency of the call: {@code newLimit = limit * gradient + sqrt(limit)}, where
+ * {@code gradient = clamp(rttTolerance * longRtt / rtt, 0.5, 1)}. Stable latency lets the limit grow by the queue
+ * allowance {@code sqrt(limit)}, rising latency shrinks it. Calls exceeding their deadlines back off the limit.
+ *
+ * @author Freeman
+ * @see <a href="https://github.com/Netflix/concurrency-limits">Netflix concurrency-limits, Gradient2Limit</a>
+ * @since 4.1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int WARMUP_SAMPLES = 10;
+    private static final int LONG_WINDOW = 600;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile double limit;
+
+    // guarded by this
+    private double longRtt;
+    private int samples;
+
+    public AdaptiveConcurrencyLimiter(GrpcServerProperties.ConcurrencyLimit properties) {
+        this.minLimit = Math.max(properties.getMinLimit(), 1);
+        this.maxLimit = Math.max(properties.getMaxLimit(), minLimit);
+        this.rttTolerance = Math.max(properties.getRttTolerance(), 1.0);
+        this.smoothing = Math.min(Math.max(properties.getSmoothing(), 0.0), 1.0);
+        this.limit = clamp(properties.getInitialLimit());
+    }
+
+    /**
+     * Take a permit, every successful acquire must be followed by exactly one of {@link #onSuccess},
+     * {@link #onDropped} or {@link #onIgnore}.
+     *
+     * @return true if the call is allowed, false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return the permit and sample the latency of the call.
+     *
+     * @param rttNanos latency of the call
+     * @param inFlight number of in-flight calls when the call started
+     */
+    public void onSuccess(long rttNanos, int inFlight) {
+        this.inFlight.decrementAndGet();
+        if (rttNanos > 0) {
+            update(rttNanos, inFlight);
+        }
+    }
+
+    /**
+     * Return the permit and back off the limit, the call was dropped because of overload, e.g. deadline exceeded.
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            setLimit(limit * BACKOFF_RATIO);
+        }
+    }
+
+    /**
+     * Return the permit without sampling, e.g. the call was cancelled by the client.
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return current limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return number of in-flight calls
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of rejected calls
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private synchronized void update(long rtt, int inFlightAtStart) {
+        if (samples < WARMUP_SAMPLES) {
+            samples++;
+            longRtt += (rtt - longRtt) / samples;
+        } else {
+            longRtt += (rtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+
+        // after a load burst the long-term average is far above the current latency, decay it to recover faster
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double current = limit;
+
+        // the limit is not the bottleneck, don't grow
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / rtt));
+        setLimit(current * gradient + Math.sqrt(current));
+    }
+
+    private void setLimit(double newLimit) {
+        limit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,41 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.BindableService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * gRPC adaptive concurrency limit configuration.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = GrpcServerProperties.ConcurrencyLimit.PREFIX, name = "enabled")
+public class ConcurrencyLimit {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConcurrencyLimitServerInterceptor grpcConcurrencyLimitServerInterceptor(
+            GrpcServerProperties properties, List<BindableService> services) {
+        return new ConcurrencyLimitServerInterceptor(properties.getConcurrencyLimit(), services);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class Metrics {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ConcurrencyLimitMeterBinder grpcConcurrencyLimitMeterBinder(
+                ConcurrencyLimitServerInterceptor interceptor) {
+            return new ConcurrencyLimitMeterBinder(interceptor);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes {@link ConcurrencyLimitServerInterceptor} limits as Micrometer meters, tagged with the gRPC full method
+ * name, or {@code global} for the global limit.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+public class ConcurrencyLimitMeterBinder implements MeterBinder {
+
+    public static final String LIMIT = "grpc.server.concurrency.limit";
+    public static final String IN_FLIGHT = "grpc.server.concurrency.in.flight";
+    public static final String REJECTED = "grpc.server.concurrency.rejected";
+
+    private static final String METHOD_TAG = "method";
+    private static final String GLOBAL = "global";
+
+    private final ConcurrencyLimitServerInterceptor interceptor;
+
+    public ConcurrencyLimitMeterBinder(ConcurrencyLimitServerInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, GLOBAL, interceptor.getGlobalLimiter());
+        interceptor.getMethodLimiters().forEach((method, limiter) -> bind(registry, method, limiter));
+    }
+
+    private static void bind(MeterRegistry registry, String method, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder(LIMIT, limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit of gRPC server calls")
+                .tag(METHOD_TAG, method)
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Number of in-flight gRPC server calls holding a concurrency permit")
+                .tag(METHOD_TAG, method)
+                .register(registry);
+        FunctionCounter.builder(REJECTED, limiter, AdaptiveConcurrencyLimiter::getRejectedCount)
+                .description("Number of gRPC server calls rejected with RESOURCE_EXHAUSTED by the concurrency limit")
+                .tag(METHOD_TAG, method)
+                .register(registry);
+    }
+}
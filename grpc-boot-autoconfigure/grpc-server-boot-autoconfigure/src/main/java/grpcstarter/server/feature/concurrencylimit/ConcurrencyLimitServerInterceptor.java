@@ -0,0 +1,197 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.BindableService;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.Nullable;
+import org.springframework.core.Ordered;
+
+/**
+ * A gRPC ServerInterceptor that applies an adaptive concurrency limit to unary calls, globally and optionally per
+ * method.
+ *
+ * <p> Calls above the limit are closed with {@code RESOURCE_EXHAUSTED} before any application code runs. Streaming
+ * calls are not limited, their lifetime is not a latency signal.
+ *
+ * <p> Calls whose deadline expired back off the limit, whether the application closes them with
+ * {@code DEADLINE_EXCEEDED} or the server cancels them. Calls cancelled by the client are not sampled.
+ *
+ * @author Freeman
+ * @see AdaptiveConcurrencyLimiter
+ * @since 4.1.0
+ */
+public class ConcurrencyLimitServerInterceptor implements ServerInterceptor, Ordered {
+    /**
+     * After metrics and tracing, so that rejected calls are recorded, before other interceptors.
+     */
+    public static final int ORDER = -5000;
+
+    private final AdaptiveConcurrencyLimiter globalLimiter;
+    private final Map<String, AdaptiveConcurrencyLimiter> methodLimiters;
+
+    public ConcurrencyLimitServerInterceptor(
+            GrpcServerProperties.ConcurrencyLimit properties, List<BindableService> services) {
+        this.globalLimiter = new AdaptiveConcurrencyLimiter(properties);
+        var limiters = new HashMap<String, AdaptiveConcurrencyLimiter>();
+        if (properties.isPerMethod()) {
+            for (var service : services) {
+                for (var method : service.bindService().getMethods()) {
+                    var descriptor = method.getMethodDescriptor();
+                    if (descriptor.getType() == MethodDescriptor.MethodType.UNARY) {
+                        limiters.put(descriptor.getFullMethodName(), new AdaptiveConcurrencyLimiter(properties));
+                    }
+                }
+            }
+        }
+        this.methodLimiters = Collections.unmodifiableMap(limiters);
+    }
+
+    @Override
+    public <I, O> ServerCall.Listener<I> interceptCall(
+            ServerCall<I, O> call, Metadata headers, ServerCallHandler<I, O> next) {
+        var descriptor = call.getMethodDescriptor();
+        if (descriptor.getType() != MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(call, headers);
+        }
+
+        var methodLimiter = methodLimiters.get(descriptor.getFullMethodName());
+        if (!globalLimiter.tryAcquire()) {
+            return reject(call);
+        }
+        if (methodLimiter != null && !methodLimiter.tryAcquire()) {
+            globalLimiter.onIgnore();
+            return reject(call);
+        }
+
+        var permit = new Permit(globalLimiter, methodLimiter, Context.current().getDeadline());
+        ServerCall.Listener<I> listener;
+        try {
+            listener = next.startCall(
+                    new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                        @Override
+                        public void close(Status status, Metadata trailers) {
+                            permit.release(status);
+                            super.close(status, trailers);
+                        }
+                    },
+                    headers);
+        } catch (RuntimeException e) {
+            permit.ignore();
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onCancel() {
+                // the server cancels the call when its deadline expires, that's an overload signal
+                permit.cancel();
+                super.onCancel();
+            }
+        };
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * @return global limiter
+     */
+    public AdaptiveConcurrencyLimiter getGlobalLimiter() {
+        return globalLimiter;
+    }
+
+    /**
+     * @return gRPC full method name -> limiter, empty if per-method limits are disabled
+     */
+    public Map<String, AdaptiveConcurrencyLimiter> getMethodLimiters() {
+        return methodLimiters;
+    }
+
+    private static <I, O> ServerCall.Listener<I> reject(ServerCall<I, O> call) {
+        call.close(Status.RESOURCE_EXHAUSTED.withDescription("Concurrency limit exceeded"), new Metadata());
+        return new ServerCall.Listener<>() {};
+    }
+
+    private static final class Permit {
+        private final AdaptiveConcurrencyLimiter globalLimiter;
+        private final @Nullable AdaptiveConcurrencyLimiter methodLimiter;
+        private final @Nullable Deadline deadline;
+        private final long start = System.nanoTime();
+        private final int globalInFlight;
+        private final int methodInFlight;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(
+                AdaptiveConcurrencyLimiter globalLimiter,
+                @Nullable AdaptiveConcurrencyLimiter methodLimiter,
+                @Nullable Deadline deadline) {
+            this.globalLimiter = globalLimiter;
+            this.methodLimiter = methodLimiter;
+            this.deadline = deadline;
+            this.globalInFlight = globalLimiter.getInFlight();
+            this.methodInFlight = methodLimiter != null ? methodLimiter.getInFlight() : 0;
+        }
+
+        void release(Status status) {
+            if (status.getCode() == Status.Code.DEADLINE_EXCEEDED || isDeadlineExpired()) {
+                drop();
+                return;
+            }
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long rtt = System.nanoTime() - start;
+            globalLimiter.onSuccess(rtt, globalInFlight);
+            if (methodLimiter != null) {
+                methodLimiter.onSuccess(rtt, methodInFlight);
+            }
+        }
+
+        void cancel() {
+            if (isDeadlineExpired()) {
+                drop();
+            } else {
+                ignore();
+            }
+        }
+
+        void ignore() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            globalLimiter.onIgnore();
+            if (methodLimiter != null) {
+                methodLimiter.onIgnore();
+            }
+        }
+
+        private void drop() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            globalLimiter.onDropped();
+            if (methodLimiter != null) {
+                methodLimiter.onDropped();
+            }
+        }
+
+        private boolean isDeadlineExpired() {
+            return deadline != null && deadline.isExpired();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import grpcstarter.server.GrpcServerProperties;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link AdaptiveConcurrencyLimiter} tester.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testRejectAboveLimit() {
+        var properties = new GrpcServerProperties.ConcurrencyLimit();
+        properties.setInitialLimit(2);
+        var limiter = new AdaptiveConcurrencyLimiter(properties);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        limiter.onIgnore();
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void testLimitFollowsLatency() {
+        var properties = new GrpcServerProperties.ConcurrencyLimit();
+        properties.setInitialLimit(10);
+        var limiter = new AdaptiveConcurrencyLimiter(properties);
+
+        // stable latency with a saturated limit, grows
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        int grown = limiter.getLimit();
+        assertThat(grown).isGreaterThan(10);
+
+        // latency rises well above the long-term average, shrinks
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertThat(limiter.getLimit()).isLessThan(grown);
+    }
+
+    @Test
+    void testDroppedBacksOff() {
+        var properties = new GrpcServerProperties.ConcurrencyLimit();
+        properties.setInitialLimit(100);
+        properties.setSmoothing(1);
+        var limiter = new AdaptiveConcurrencyLimiter(properties);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.onDropped();
+
+        assertThat(limiter.getLimit()).isEqualTo(90);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static void sample(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.onSuccess(rttNanos, limiter.getLimit());
+    }
+}
@@ -0,0 +1,158 @@
+package grpcstarter.server.feature.concurrencylimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.protobuf.SimpleRequest;
+import io.grpc.testing.protobuf.SimpleResponse;
+import io.grpc.testing.protobuf.SimpleServiceGrpc;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link ConcurrencyLimitServerInterceptor} tester.
+ */
+class ConcurrencyLimitServerInterceptorTest {
+
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    final BlockingService service = new BlockingService();
+
+    ConcurrencyLimitServerInterceptor interceptor;
+    Server server;
+    ManagedChannel channel;
+
+    @BeforeEach
+    void start() throws Exception {
+        var properties = new GrpcServerProperties.ConcurrencyLimit();
+        properties.setInitialLimit(1);
+        properties.setMaxLimit(1);
+        properties.setPerMethod(true);
+        start(properties);
+    }
+
+    void start(GrpcServerProperties.ConcurrencyLimit properties) throws Exception {
+        if (server != null) {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+        interceptor = new ConcurrencyLimitServerInterceptor(properties, List.of(service));
+
+        String name = UUID.randomUUID().toString();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(service, interceptor, new CancelListener()))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void testRejectAboveLimit() throws Exception {
+        assertThat(interceptor.getMethodLimiters())
+                .containsOnlyKeys(SimpleServiceGrpc.getUnaryRpcMethod().getFullMethodName());
+
+        var blocked = SimpleServiceGrpc.newFutureStub(channel).unaryRpc(SimpleRequest.getDefaultInstance());
+        entered.await();
+
+        var stub = SimpleServiceGrpc.newBlockingStub(channel);
+        assertThatExceptionOfType(StatusRuntimeException.class)
+                .isThrownBy(() -> stub.unaryRpc(SimpleRequest.getDefaultInstance()))
+                .satisfies(e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+        assertThat(interceptor.getGlobalLimiter().getRejectedCount()).isEqualTo(1);
+
+        // the permit is returned when the call closes
+        release.countDown();
+        blocked.get();
+        assertThat(stub.unaryRpc(SimpleRequest.getDefaultInstance())).isNotNull();
+        assertThat(interceptor.getGlobalLimiter().getInFlight()).isZero();
+    }
+
+    @Test
+    void testDeadlineExceededBacksOff() throws Exception {
+        var properties = new GrpcServerProperties.ConcurrencyLimit();
+        properties.setInitialLimit(10);
+        properties.setMaxLimit(10);
+        properties.setSmoothing(1);
+        properties.setPerMethod(true);
+        start(properties);
+        service.respond = false;
+
+        var stub = SimpleServiceGrpc.newBlockingStub(channel).withDeadlineAfter(100, TimeUnit.MILLISECONDS);
+        assertThatExceptionOfType(StatusRuntimeException.class)
+                .isThrownBy(() -> stub.unaryRpc(SimpleRequest.getDefaultInstance()))
+                .satisfies(e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED));
+
+        // the application never responds, the server cancels the call when the deadline expires
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        var methodLimiter =
+                interceptor.getMethodLimiters().get(SimpleServiceGrpc.getUnaryRpcMethod().getFullMethodName());
+        assertThat(interceptor.getGlobalLimiter().getInFlight()).isZero();
+        assertThat(interceptor.getGlobalLimiter().getLimit()).isEqualTo(9);
+        assertThat(methodLimiter).isNotNull();
+        assertThat(methodLimiter.getLimit()).isEqualTo(9);
+    }
+
+    class BlockingService extends SimpleServiceGrpc.SimpleServiceImplBase {
+
+        volatile boolean respond = true;
+
+        @Override
+        public void unaryRpc(SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            if (!respond) {
+                return;
+            }
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            responseObserver.onNext(SimpleResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+
+    class CancelListener implements ServerInterceptor {
+
+        @Override
+        public <I, O> ServerCall.Listener<I> interceptCall(
+                ServerCall<I, O> call, Metadata headers, ServerCallHandler<I, O> next) {
+            var listener = next.startCall(call, headers);
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+                @Override
+                public void onCancel() {
+                    super.onCancel();
+                    cancelled.countDown();
+                }
+            };
+        }
+    }
+}
@@ -42,4 +42,11 @@ public class GrpcTranscodingOpenAPIAutoConfiguration {
         return new GrpcTranscodingOpenApiCustomizer(
                 services, grpcTranscodingProperties, springDocConfigProperties, springDocBridgeProtobufProperties);
     }
+
+    // AOT support, generate the transcoding OpenAPI document at build time
+    @Bean
+    static GrpcTranscodingOpenApiBeanFactoryInitializationAotProcessor
+            grpcTranscodingOpenApiBeanFactoryInitializationAotProcessor() {
+        return new GrpcTranscodingOpenApiBeanFactoryInitializationAotProcessor();
+    }
 }
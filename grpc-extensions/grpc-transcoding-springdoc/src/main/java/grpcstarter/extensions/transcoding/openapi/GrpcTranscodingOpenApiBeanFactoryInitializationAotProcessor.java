@@ -0,0 +1,115 @@
+package grpcstarter.extensions.transcoding.openapi;
+
+import com.google.protobuf.Descriptors;
+import grpcstarter.extensions.transcoding.GrpcTranscodingProperties;
+import io.grpc.BindableService;
+import io.grpc.ServiceDescriptor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import org.springdoc.core.properties.SpringDocConfigProperties;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.util.ReflectionUtils;
+import springdocbridge.protobuf.SpringDocBridgeProtobufProperties;
+
+/**
+ * Generates the transcoding OpenAPI document from the protobuf descriptors at build time,
+ * the document is shipped as {@link GrpcTranscodingOpenApiCustomizer#PREBUILT_LOCATION}.
+ *
+ * <p> The gRPC services are not instantiated, the descriptors are resolved from the generated {@code *Grpc} classes.
+ *
+ * <p> TIP: use 'processAot' task to debug the AOT processing.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+class GrpcTranscodingOpenApiBeanFactoryInitializationAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    @Override
+    public @Nullable BeanFactoryInitializationAotContribution processAheadOfTime(
+            ConfigurableListableBeanFactory beanFactory) {
+        var grpcTranscodingProperties =
+                beanFactory.getBeanProvider(GrpcTranscodingProperties.class).getIfAvailable();
+        var springDocConfigProperties =
+                beanFactory.getBeanProvider(SpringDocConfigProperties.class).getIfAvailable();
+        var springDocBridgeProtobufProperties =
+                beanFactory.getBeanProvider(SpringDocBridgeProtobufProperties.class).getIfAvailable();
+        if (grpcTranscodingProperties == null
+                || springDocConfigProperties == null
+                || springDocBridgeProtobufProperties == null) {
+            return null;
+        }
+
+        var serviceDescriptors = listServiceDescriptors(beanFactory);
+        if (serviceDescriptors.isEmpty()) {
+            return null;
+        }
+
+        return (generationContext, beanFactoryInitializationCode) -> {
+            var customizer = new GrpcTranscodingOpenApiCustomizer(
+                    grpcTranscodingProperties,
+                    springDocConfigProperties,
+                    springDocBridgeProtobufProperties,
+                    serviceDescriptors);
+            var json = customizer.serialize(customizer.build());
+            generationContext
+                    .getGeneratedFiles()
+                    .addResourceFile(GrpcTranscodingOpenApiCustomizer.PREBUILT_LOCATION, json);
+        };
+    }
+
+    private static List<Descriptors.ServiceDescriptor> listServiceDescriptors(
+            ConfigurableListableBeanFactory beanFactory) {
+        var result = new LinkedHashSet<Descriptors.ServiceDescriptor>();
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            Class<?> clz = beanFactory.getBeanDefinition(name).getResolvableType().resolve();
+            if (clz == null || !BindableService.class.isAssignableFrom(clz)) {
+                continue;
+            }
+            var serviceDescriptor = findServiceDescriptor(clz);
+            if (serviceDescriptor != null) {
+                result.add(GrpcTranscodingOpenApiCustomizer.mustGetServiceDescriptor(serviceDescriptor));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Find the {@link ServiceDescriptor} of the service implementation, e.g.
+     * {@code SimpleServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase}
+     * -> {@code SimpleServiceGrpc.getServiceDescriptor()}.
+     */
+    private static @Nullable ServiceDescriptor findServiceDescriptor(Class<?> clz) {
+        for (Class<?> c = clz; c != null && c != Object.class; c = c.getSuperclass()) {
+            var serviceDescriptor = getServiceDescriptor(c);
+            if (serviceDescriptor != null) {
+                return serviceDescriptor;
+            }
+            for (var itf : c.getInterfaces()) { // e.g. SimpleServiceGrpc.AsyncService
+                serviceDescriptor = getServiceDescriptor(itf);
+                if (serviceDescriptor != null) {
+                    return serviceDescriptor;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static @Nullable ServiceDescriptor getServiceDescriptor(Class<?> clz) {
+        var enclosingClass = clz.getEnclosingClass();
+        if (enclosingClass == null) {
+            return null;
+        }
+        var method = ReflectionUtils.findMethod(enclosingClass, "getServiceDescriptor");
+        if (method == null
+                || !Modifier.isStatic(method.getModifiers())
+                || method.getReturnType() != ServiceDescriptor.class) {
+            return null;
+        }
+        return (ServiceDescriptor) ReflectionUtils.invokeMethod(method, null);
+    }
+}
@@ -3,6 +3,8 @@ package grpcstarter.extensions.transcoding.openapi;
 import static grpcstarter.extensions.transcoding.ProtobufJavaTypeUtil.findJavaClass;
 import static grpcstarter.extensions.transcoding.ProtobufJavaTypeUtil.findJavaFieldType;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.api.AnnotationsProto;
 import com.google.api.HttpRule;
@@ -10,12 +12,14 @@ import com.google.api.pathtemplate.PathTemplate;
 import com.google.protobuf.Descriptors;
 import grpcstarter.extensions.transcoding.GrpcTranscodingProperties;
 import io.grpc.BindableService;
-import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
 import io.grpc.protobuf.ProtoFileDescriptorSupplier;
 import io.swagger.v3.core.converter.AnnotatedType;
 import io.swagger.v3.core.converter.ModelConverterContext;
 import io.swagger.v3.core.converter.ModelConverterContextImpl;
 import io.swagger.v3.core.converter.ModelConverters;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.core.util.Json31;
 import io.swagger.v3.core.util.RefUtils;
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
@@ -30,47 +34,98 @@ import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.parameters.RequestBody;
 import io.swagger.v3.oas.models.responses.ApiResponse;
 import io.swagger.v3.oas.models.responses.ApiResponses;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springdoc.core.customizers.OpenApiCustomizer;
 import org.springdoc.core.properties.SpringDocConfigProperties;
+import org.springframework.aot.AotDetector;
+import org.springframework.core.io.ClassPathResource;
 import springdocbridge.protobuf.ProtobufNameResolver;
 import springdocbridge.protobuf.SpringDocBridgeProtobufProperties;
 
 /**
  * OpenAPI customizer for gRPC Transcoding.
  *
+ * <p> The transcoding part of the document (paths and schemas) is built once and merged into the document of every
+ * group, instead of being rebuilt each time springdoc builds a group. The built part is kept as JSON, every group gets
+ * its own copy, so a group customizer can not change the document of another group.
+ *
+ * <p> The service descriptors are resolved when the document is first requested, services without a protobuf
+ * descriptor are skipped.
+ *
+ * <p> When running with AOT generated artifacts, the part generated at build time by
+ * {@link GrpcTranscodingOpenApiBeanFactoryInitializationAotProcessor} is used if present,
+ * see {@link #PREBUILT_LOCATION}.
+ *
  * @author Freeman
  */
 public class GrpcTranscodingOpenApiCustomizer implements OpenApiCustomizer {
     private static final Logger log = LoggerFactory.getLogger(GrpcTranscodingOpenApiCustomizer.class);
 
-    private final List<ServerServiceDefinition> serviceDefinitions;
+    /**
+     * Classpath location of the transcoding OpenAPI document generated at build time.
+     *
+     * @since 4.1.0
+     */
+    public static final String PREBUILT_LOCATION = "META-INF/grpc-transcoding/openapi.json";
+
+    private final Supplier<List<Descriptors.ServiceDescriptor>> serviceDescriptors;
     private final GrpcTranscodingProperties grpcTranscodingProperties;
     private final ModelConverterContext modelConverterContext;
     private final ProtobufNameResolver protobufNameResolver;
+    private final boolean openapi31;
+
+    private volatile @Nullable String transcodingOpenApi;
 
     public GrpcTranscodingOpenApiCustomizer(
             List<BindableService> services,
             GrpcTranscodingProperties grpcTranscodingProperties,
             SpringDocConfigProperties springDocConfigProperties,
             SpringDocBridgeProtobufProperties springDocBridgeProtobufProperties) {
-        this.serviceDefinitions =
-                services.stream().map(BindableService::bindService).toList();
+        this(
+                grpcTranscodingProperties,
+                springDocConfigProperties,
+                springDocBridgeProtobufProperties,
+                () -> getServiceDescriptors(services));
+    }
+
+    GrpcTranscodingOpenApiCustomizer(
+            GrpcTranscodingProperties grpcTranscodingProperties,
+            SpringDocConfigProperties springDocConfigProperties,
+            SpringDocBridgeProtobufProperties springDocBridgeProtobufProperties,
+            List<Descriptors.ServiceDescriptor> serviceDescriptors) {
+        this(
+                grpcTranscodingProperties,
+                springDocConfigProperties,
+                springDocBridgeProtobufProperties,
+                () -> serviceDescriptors);
+    }
+
+    private GrpcTranscodingOpenApiCustomizer(
+            GrpcTranscodingProperties grpcTranscodingProperties,
+            SpringDocConfigProperties springDocConfigProperties,
+            SpringDocBridgeProtobufProperties springDocBridgeProtobufProperties,
+            Supplier<List<Descriptors.ServiceDescriptor>> serviceDescriptors) {
+        this.serviceDescriptors = serviceDescriptors;
         this.grpcTranscodingProperties = grpcTranscodingProperties;
         this.modelConverterContext = new ModelConverterContextImpl(
                 buildModelConverters(springDocConfigProperties).getConverters());
         this.protobufNameResolver = new ProtobufNameResolver(
                 springDocBridgeProtobufProperties.getSchemaNamingStrategy(), springDocConfigProperties.isUseFqn());
+        this.openapi31 = springDocConfigProperties.isOpenapi31();
     }
 
     @Override
@@ -78,13 +133,36 @@ public class GrpcTranscodingOpenApiCustomizer implements OpenApiCustomizer {
 
         init(openApi);
 
-        for (var sd : serviceDefinitions) {
-            var descriptor = mustGetServiceDescriptor(sd);
+        // a fresh copy for every group, the operations and schemas are added as is
+        var transcoding = readTranscodingOpenApi(getTranscodingOpenApi());
 
-            if (descriptor == null) {
-                continue;
+        var paths = openApi.getPaths();
+        for (var en : transcoding.getPaths().entrySet()) {
+            var pathItem = paths.get(en.getKey());
+            if (pathItem == null) {
+                pathItem = new PathItem();
+                paths.addPathItem(en.getKey(), pathItem);
             }
+            copyOperations(en.getValue(), pathItem);
+        }
+
+        var schemas = transcoding.getComponents().getSchemas();
+        if (schemas != null) {
+            schemas.forEach(openApi.getComponents()::addSchemas);
+        }
+    }
+
+    /**
+     * Build the transcoding part of the OpenAPI document, contains the paths and the schemas only.
+     *
+     * @return OpenAPI contains the transcoding paths and schemas
+     */
+    OpenAPI build() {
+        var openApi = new OpenAPI();
+
+        init(openApi);
 
+        for (var descriptor : serviceDescriptors.get()) {
             for (var rpcMethod : descriptor.getMethods()) {
                 if (rpcMethod.isClientStreaming() || rpcMethod.isServerStreaming()) {
                     continue;
@@ -131,6 +209,95 @@ public class GrpcTranscodingOpenApiCustomizer implements OpenApiCustomizer {
         for (var en : modelConverterContext.getDefinedModels().entrySet()) {
             openApi.getComponents().addSchemas(en.getKey(), en.getValue());
         }
+
+        return openApi;
+    }
+
+    /**
+     * Serialize the OpenAPI document built by {@link #build()}, the result can be loaded from
+     * {@link #PREBUILT_LOCATION}.
+     *
+     * @param openApi OpenAPI document
+     * @return JSON
+     */
+    String serialize(OpenAPI openApi) {
+        try {
+            return getMapper().writeValueAsString(openApi);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize transcoding OpenAPI document", e);
+        }
+    }
+
+    private String getTranscodingOpenApi() {
+        var result = transcodingOpenApi;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            result = transcodingOpenApi;
+            if (result == null) {
+                result = loadPrebuilt();
+                if (result == null) {
+                    result = serialize(build());
+                }
+                transcodingOpenApi = result;
+            }
+            return result;
+        }
+    }
+
+    private OpenAPI readTranscodingOpenApi(String json) {
+        OpenAPI result;
+        try {
+            result = getMapper().readValue(json, OpenAPI.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize transcoding OpenAPI document", e);
+        }
+        init(result);
+        return result;
+    }
+
+    private @Nullable String loadPrebuilt() {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return null;
+        }
+        var resource = new ClassPathResource(PREBUILT_LOCATION);
+        if (!resource.exists()) {
+            return null;
+        }
+        try {
+            var json = resource.getContentAsString(StandardCharsets.UTF_8);
+            getMapper().readValue(json, OpenAPI.class); // fail fast on a broken document
+            return json;
+        } catch (IOException e) {
+            log.warn(
+                    "Failed to read prebuilt OpenAPI document '{}', fallback to runtime generation",
+                    PREBUILT_LOCATION,
+                    e);
+            return null;
+        }
+    }
+
+    private ObjectMapper getMapper() {
+        return openapi31 ? Json31.mapper() : Json.mapper();
+    }
+
+    private static void copyOperations(PathItem from, PathItem to) {
+        if (from.getGet() != null) {
+            to.setGet(from.getGet());
+        }
+        if (from.getPut() != null) {
+            to.setPut(from.getPut());
+        }
+        if (from.getPost() != null) {
+            to.setPost(from.getPost());
+        }
+        if (from.getDelete() != null) {
+            to.setDelete(from.getDelete());
+        }
+        if (from.getPatch() != null) {
+            to.setPatch(from.getPatch());
+        }
     }
 
     private static void init(OpenAPI openApi) {
@@ -280,17 +447,41 @@ public class GrpcTranscodingOpenApiCustomizer implements OpenApiCustomizer {
         };
     }
 
-    private static Descriptors.ServiceDescriptor mustGetServiceDescriptor(ServerServiceDefinition definition) {
-        Object schemaDescriptor = definition.getServiceDescriptor().getSchemaDescriptor();
+    static Descriptors.ServiceDescriptor mustGetServiceDescriptor(ServiceDescriptor serviceDescriptor) {
+        var result = findServiceDescriptor(serviceDescriptor);
+        if (result == null) {
+            throw new IllegalStateException("Service descriptor not found");
+        }
+        return result;
+    }
+
+    private static Descriptors.@Nullable ServiceDescriptor findServiceDescriptor(ServiceDescriptor serviceDescriptor) {
+        Object schemaDescriptor = serviceDescriptor.getSchemaDescriptor();
         if (schemaDescriptor instanceof ProtoFileDescriptorSupplier protoFileDescriptorSupplier) {
             Descriptors.FileDescriptor fileDescriptor = protoFileDescriptorSupplier.getFileDescriptor();
-            String serviceName = definition.getServiceDescriptor().getName();
+            String serviceName = serviceDescriptor.getName();
             return fileDescriptor.getServices().stream()
-                    .filter(serviceDescriptor -> serviceDescriptor.getFullName().equals(serviceName))
+                    .filter(sd -> sd.getFullName().equals(serviceName))
                     .findFirst()
-                    .orElseThrow();
+                    .orElse(null);
+        }
+        return null;
+    }
+
+    private static List<Descriptors.ServiceDescriptor> getServiceDescriptors(List<BindableService> services) {
+        var result = new ArrayList<Descriptors.ServiceDescriptor>();
+        for (var service : services) {
+            var serviceDescriptor = service.bindService().getServiceDescriptor();
+            var descriptor = findServiceDescriptor(serviceDescriptor);
+            if (descriptor == null) {
+                log.warn(
+                        "Service '{}' has no protobuf descriptor, skip it in the OpenAPI document",
+                        serviceDescriptor.getName());
+                continue;
+            }
+            result.add(descriptor);
         }
-        throw new IllegalStateException("Service descriptor not found");
+        return result;
     }
 
     private Schema<?> resolveSchema(String schemaName, Type type) {
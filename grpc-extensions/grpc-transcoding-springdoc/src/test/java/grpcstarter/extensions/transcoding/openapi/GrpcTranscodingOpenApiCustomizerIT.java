@@ -0,0 +1,135 @@
+package grpcstarter.extensions.transcoding.openapi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.grpc.BindableService;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.testing.protobuf.SimpleServiceGrpc;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.AotDetector;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.SpringProperties;
+import org.springframework.javapoet.ClassName;
+
+/**
+ * {@link GrpcTranscodingOpenApiCustomizer} tester.
+ */
+class GrpcTranscodingOpenApiCustomizerIT {
+
+    static final String UNARY_PATH = "/grpc.testing.SimpleService/UnaryRpc";
+
+    @Test
+    void testGroupsDoNotShareOperations() {
+        try (var ctx = run()) {
+            var customizer = ctx.getBean(GrpcTranscodingOpenApiCustomizer.class);
+
+            var group1 = new OpenAPI();
+            customizer.customise(group1);
+            var group2 = new OpenAPI();
+            customizer.customise(group2);
+
+            var operation1 = group1.getPaths().get(UNARY_PATH).getPost();
+            var operation2 = group2.getPaths().get(UNARY_PATH).getPost();
+            assertThat(operation1).isNotSameAs(operation2);
+            assertThat(group1.getComponents().getSchemas())
+                    .isNotEmpty()
+                    .isEqualTo(group2.getComponents().getSchemas());
+
+            // a group customizer changes its own document only
+            operation1.setOperationId("changed");
+            group1.getComponents().getSchemas().values().forEach(schema -> schema.setDescription("changed"));
+            var group3 = new OpenAPI();
+            customizer.customise(group3);
+            assertThat(group3.getPaths().get(UNARY_PATH).getPost().getOperationId())
+                    .isEqualTo("UnaryRpc");
+            assertThat(group3.getComponents().getSchemas()).isEqualTo(group2.getComponents().getSchemas());
+        }
+    }
+
+    @Test
+    void testSkipServiceWithoutProtoDescriptor() {
+        try (var ctx = run()) {
+            var customizer = ctx.getBean(GrpcTranscodingOpenApiCustomizer.class);
+
+            var openApi = new OpenAPI();
+            customizer.customise(openApi);
+
+            assertThat(openApi.getPaths()).containsKey(UNARY_PATH);
+            assertThat(openApi.getPaths().keySet()).noneMatch(path -> path.startsWith("/test.NoProtoService/"));
+        }
+    }
+
+    @Test
+    void testAotProcessorGeneratesDocument() throws Exception {
+        try (var ctx = run()) {
+            var contribution = new GrpcTranscodingOpenApiBeanFactoryInitializationAotProcessor()
+                    .processAheadOfTime(ctx.getBeanFactory());
+            assertThat(contribution).isNotNull();
+
+            var generatedFiles = new InMemoryGeneratedFiles();
+            var generationContext =
+                    new DefaultGenerationContext(new ClassNameGenerator(ClassName.get(Cfg.class)), generatedFiles);
+            contribution.applyTo(generationContext, mock(BeanFactoryInitializationCode.class));
+
+            var json = generatedFiles.getGeneratedFileContent(
+                    GeneratedFiles.Kind.RESOURCE, GrpcTranscodingOpenApiCustomizer.PREBUILT_LOCATION);
+            assertThat(json).isNotNull();
+
+            var prebuilt = Json.mapper().readValue(json, OpenAPI.class);
+            assertThat(prebuilt.getPaths()).containsKey(UNARY_PATH);
+            assertThat(prebuilt.getPaths().get(UNARY_PATH).getPost().getOperationId())
+                    .isEqualTo("UnaryRpc");
+            assertThat(prebuilt.getComponents().getSchemas()).isNotEmpty();
+        }
+    }
+
+    @Test
+    void testLoadPrebuiltDocument() {
+        try (var ctx = run()) {
+            var customizer = ctx.getBean(GrpcTranscodingOpenApiCustomizer.class);
+
+            var openApi = new OpenAPI();
+            SpringProperties.setProperty(AotDetector.AOT_ENABLED, "true");
+            try {
+                customizer.customise(openApi);
+            } finally {
+                SpringProperties.setProperty(AotDetector.AOT_ENABLED, null);
+            }
+
+            // see src/test/resources/META-INF/grpc-transcoding/openapi.json
+            assertThat(openApi.getPaths()).containsOnlyKeys("/prebuilt");
+            assertThat(openApi.getPaths().get("/prebuilt").getPost().getOperationId())
+                    .isEqualTo("Prebuilt");
+        }
+    }
+
+    private static ConfigurableApplicationContext run() {
+        return SpringApplication.run(Cfg.class, "--grpc.server.port=0", "--grpc.transcoding.enabled=true");
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration
+    @Import(SimpleServiceImpl.class)
+    static class Cfg {
+
+        @Bean
+        BindableService withoutProtoDescriptor() {
+            return () -> ServerServiceDefinition.builder("test.NoProtoService").build();
+        }
+    }
+
+    static class SimpleServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase {}
+}
@@ -0,0 +1,257 @@
+package grpcstarter.extensions.transcoding;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.api.HttpRule;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Precompiled request binding plan of a route.
+ *
+ * <p> Everything that only depends on the {@link HttpRule} and the input message {@link Descriptors.Descriptor}
+ * is resolved once: the body field, the field descriptor chains of path variables and query parameters,
+ * and the value converters of the target fields. Binding a request is then a table lookup plus a parse.
+ *
+ * @author Freeman
+ */
+final class BindingPlan {
+
+    /**
+     * Max number of dotted query parameter bindings resolved at runtime to cache, prevents unbounded growth.
+     */
+    private static final int MAX_CACHED_NESTED_PARAMETERS = 1024;
+
+    private static final FieldBinding NO_BINDING = new FieldBinding(List.of(), null, null);
+
+    private final Descriptors.Descriptor inputType;
+    private final boolean hasBody;
+    private final boolean bodyAll;
+    private final Descriptors.@Nullable FieldDescriptor bodyField;
+
+    /**
+     * Top level field name -> binding, used by path variables and query parameters.
+     */
+    private final Map<String, FieldBinding> fields;
+
+    /**
+     * Dotted query parameter name -> binding, resolved on first use.
+     */
+    private final Map<String, FieldBinding> nestedParameters = new ConcurrentHashMap<>();
+
+    private BindingPlan(Descriptors.Descriptor inputType, HttpRule httpRule) {
+        this.inputType = inputType;
+        this.hasBody = !httpRule.getBody().isBlank();
+        this.bodyAll = Objects.equals(httpRule.getBody(), "*");
+        var field = hasBody && !bodyAll ? inputType.findFieldByName(httpRule.getBody()) : null;
+        this.bodyField = hasBuilder(field) ? field : null;
+        this.fields = resolveFields(inputType);
+    }
+
+    /**
+     * Create a binding plan.
+     *
+     * @param inputType input message type
+     * @param httpRule  http rule of the route
+     * @return binding plan
+     */
+    static BindingPlan create(Descriptors.Descriptor inputType, HttpRule httpRule) {
+        return new BindingPlan(inputType, httpRule);
+    }
+
+    /**
+     * @return whether the http rule maps the request body
+     */
+    boolean hasBody() {
+        return hasBody;
+    }
+
+    /**
+     * Get the builder the request body should be merged into.
+     *
+     * @param messageBuilder request message builder
+     * @return the builder to merge the body into, or null if the body field can't be mapped
+     */
+    Message.@Nullable Builder getBodyBuilder(Message.Builder messageBuilder) {
+        if (bodyAll) {
+            return messageBuilder;
+        }
+        if (bodyField != null) {
+            return messageBuilder.getFieldBuilder(bodyField);
+        }
+        return null;
+    }
+
+    /**
+     * Bind query parameter to the request message.
+     *
+     * @param messageBuilder request message builder
+     * @param key            parameter name, nested fields are separated by '.'
+     * @param values         parameter values
+     */
+    void bindParameter(Message.Builder messageBuilder, String key, String[] values) {
+        getParameterBinding(key).bindParameter(messageBuilder, values);
+    }
+
+    /**
+     * Bind path variable to the request message.
+     *
+     * @param messageBuilder request message builder
+     * @param key            path variable name
+     * @param value          path variable value
+     */
+    void bindPathVariable(Message.Builder messageBuilder, String key, String value) {
+        var binding = fields.get(key);
+        if (binding != null) {
+            binding.bindPathVariable(messageBuilder, value);
+        }
+    }
+
+    private FieldBinding getParameterBinding(String key) {
+        var binding = fields.get(key);
+        if (binding != null) {
+            return binding;
+        }
+        if (key.indexOf('.') < 0) {
+            return NO_BINDING;
+        }
+        binding = nestedParameters.get(key);
+        if (binding != null) {
+            return binding;
+        }
+        binding = resolveParameter(inputType, key);
+        if (binding != NO_BINDING && nestedParameters.size() < MAX_CACHED_NESTED_PARAMETERS) {
+            nestedParameters.put(key, binding);
+        }
+        return binding;
+    }
+
+    private static Map<String, FieldBinding> resolveFields(Descriptors.Descriptor inputType) {
+        var result = new HashMap<String, FieldBinding>();
+        for (var field : inputType.getFields()) {
+            if (isValueType(field)) {
+                result.put(field.getName(), new FieldBinding(List.of(), field, createConverter(field)));
+            }
+        }
+        return Map.copyOf(result);
+    }
+
+    private static FieldBinding resolveParameter(Descriptors.Descriptor inputType, String key) {
+        String[] fieldPath = key.split("\\.", -1);
+
+        // Navigate to the last field descriptor, fields can't be navigated into are skipped
+        List<Descriptors.FieldDescriptor> parents = new ArrayList<>(fieldPath.length - 1);
+        Descriptors.Descriptor lastType = inputType;
+        for (int i = 0; i < fieldPath.length - 1; i++) {
+            Descriptors.FieldDescriptor field = lastType.findFieldByName(fieldPath[i]);
+            if (hasBuilder(field)) {
+                parents.add(field);
+                lastType = field.getMessageType();
+            }
+        }
+
+        Descriptors.FieldDescriptor field = lastType.findFieldByName(fieldPath[fieldPath.length - 1]);
+        if (parents.isEmpty() && !isValueType(field)) {
+            return NO_BINDING;
+        }
+        return isValueType(field)
+                ? new FieldBinding(List.copyOf(parents), field, createConverter(field))
+                : new FieldBinding(List.copyOf(parents), null, null);
+    }
+
+    private static boolean hasBuilder(Descriptors.@Nullable FieldDescriptor field) {
+        return field != null
+                && !field.isRepeated()
+                && !field.isMapField()
+                && field.getType() == Descriptors.FieldDescriptor.Type.MESSAGE;
+    }
+
+    private static boolean isValueType(Descriptors.@Nullable FieldDescriptor field) {
+        return field != null
+                && switch (field.getJavaType()) {
+                    case INT, LONG, FLOAT, DOUBLE, BOOLEAN, STRING, BYTE_STRING, ENUM -> true;
+                    default -> false;
+                };
+    }
+
+    private static Function<String, Object> createConverter(Descriptors.FieldDescriptor field) {
+        return switch (field.getJavaType()) {
+            case INT -> Integer::parseInt;
+            case LONG -> Long::parseLong;
+            case FLOAT -> Float::parseFloat;
+            case DOUBLE -> Double::parseDouble;
+            case BOOLEAN -> Boolean::parseBoolean;
+            case STRING -> value -> value;
+            case BYTE_STRING -> value -> ByteString.copyFrom(value.getBytes(UTF_8));
+            case ENUM -> value -> parseEnum(field, value);
+            case MESSAGE -> throw new IllegalArgumentException(
+                    "Direct parsing to message type not supported, field " + field.getName());
+        };
+    }
+
+    private static Descriptors.EnumValueDescriptor parseEnum(Descriptors.FieldDescriptor field, String value) {
+        if (value.isBlank()) {
+            return field.getEnumType().getValues().get(0);
+        }
+        if (Character.isDigit(value.charAt(0))) {
+            try {
+                var e = field.getEnumType().findValueByNumber(Integer.parseInt(value));
+                if (e != null) return e;
+            } catch (NumberFormatException ignored) {
+                // It's OK, try by name
+            }
+        } else {
+            var e = field.getEnumType().findValueByName(value);
+            if (e != null) return e;
+        }
+        throw new IllegalArgumentException(
+                "Can't parse enum value '" + value + "' for field '" + field.getName() + "'");
+    }
+
+    /**
+     * Resolved binding of a path variable or query parameter.
+     *
+     * @param parents   message fields to navigate into, from the root message
+     * @param field     target value field, null if the target can't be set
+     * @param converter converter of the target field
+     */
+    private record FieldBinding(
+            List<Descriptors.FieldDescriptor> parents,
+            Descriptors.@Nullable FieldDescriptor field,
+            @Nullable Function<String, Object> converter) {
+
+        void bindParameter(Message.Builder messageBuilder, String[] values) {
+            Message.Builder lastBuilder = messageBuilder;
+            for (var parent : parents) {
+                lastBuilder = lastBuilder.getFieldBuilder(parent);
+            }
+            if (field == null || converter == null) {
+                return;
+            }
+            if (field.isRepeated()) {
+                for (String value : values) {
+                    lastBuilder.addRepeatedField(field, converter.apply(value));
+                }
+            } else {
+                if (values.length > 0 && !lastBuilder.hasField(field) /* not set by request body */) {
+                    lastBuilder.setField(field, converter.apply(values[0]));
+                }
+            }
+        }
+
+        void bindPathVariable(Message.Builder messageBuilder, String value) {
+            if (field != null && converter != null) {
+                messageBuilder.setField(field, converter.apply(value));
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package grpcstarter.extensions.transcoding;
+
+import io.grpc.ClientCall;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Sends the request messages of a client-streaming call from a blocking thread, under the flow control of the call.
+ *
+ * <p> {@link #send(Object)} blocks while the call is not ready, so a fast HTTP client is pushed back by gRPC flow
+ * control instead of buffering the whole request stream in memory.
+ *
+ * @author Freeman
+ */
+final class BlockingClientStreamingObserver implements ClientResponseObserver<Object, Object> {
+
+    private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+    private final Object lock = new Object();
+
+    private @Nullable ClientCallStreamObserver<Object> requestStream;
+
+    private BlockingClientStreamingObserver() {}
+
+    /**
+     * Start the client-streaming call.
+     *
+     * @param call client call
+     * @return observer to send request messages
+     */
+    static BlockingClientStreamingObserver start(ClientCall<Object, Object> call) {
+        var observer = new BlockingClientStreamingObserver();
+        ClientCalls.asyncClientStreamingCall(call, observer);
+        return observer;
+    }
+
+    /**
+     * Send a request message, blocks until the call is ready.
+     *
+     * @param message request message
+     * @return false if the call is already completed, e.g. failed, and the message is not sent
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean send(Object message) throws InterruptedException {
+        var stream = mustGetRequestStream();
+        synchronized (lock) {
+            while (!stream.isReady() && !response.isDone()) {
+                lock.wait();
+            }
+        }
+        if (response.isDone()) {
+            return false;
+        }
+        stream.onNext(message);
+        return true;
+    }
+
+    /**
+     * Half-close the call, no more request messages.
+     */
+    void complete() {
+        mustGetRequestStream().onCompleted();
+    }
+
+    /**
+     * @param message cancel message
+     * @param cause   cancel cause
+     */
+    void cancel(String message, @Nullable Throwable cause) {
+        mustGetRequestStream().cancel(message, cause);
+    }
+
+    /**
+     * @return the response message
+     */
+    CompletableFuture<Object> response() {
+        return response;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+        this.requestStream = requestStream;
+        requestStream.setOnReadyHandler(this::signal);
+    }
+
+    @Override
+    public void onNext(Object value) {
+        response.complete(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        response.completeExceptionally(t);
+        signal();
+    }
+
+    @Override
+    public void onCompleted() {
+        if (!response.isDone()) {
+            response.completeExceptionally(
+                    Status.INTERNAL.withDescription("No response message").asRuntimeException());
+        }
+        signal();
+    }
+
+    private void signal() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private ClientCallStreamObserver<Object> mustGetRequestStream() {
+        var stream = requestStream;
+        if (stream == null) {
+            throw new IllegalStateException("Call not started");
+        }
+        return stream;
+    }
+}
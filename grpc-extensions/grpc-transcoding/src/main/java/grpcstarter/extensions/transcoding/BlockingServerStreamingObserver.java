@@ -0,0 +1,128 @@
+package grpcstarter.extensions.transcoding;
+
+import io.grpc.ClientCall;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Drains a gRPC server-streaming call from a blocking thread, with an optional timeout per message.
+ *
+ * <p> Unlike {@link ClientCalls#blockingServerStreamingCall}, the caller can wait for the next message with a
+ * timeout, e.g. to flush what has been written when the stream goes quiet. At most {@code prefetch} messages are
+ * requested from gRPC ahead of the caller, gRPC flow control pushes back to the backend when the caller is slow.
+ *
+ * @author Freeman
+ */
+final class BlockingServerStreamingObserver implements ClientResponseObserver<Object, Object> {
+
+    /**
+     * Returned by {@link #take()} and {@link #poll(long)} when the stream is completed.
+     */
+    static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final int prefetch;
+
+    private @Nullable ClientCallStreamObserver<Object> requestStream;
+
+    private BlockingServerStreamingObserver(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Start the server-streaming call.
+     *
+     * @param call     client call
+     * @param request  request message
+     * @param prefetch max number of response messages requested from gRPC ahead of the caller, must be positive
+     * @return observer to take response messages
+     */
+    static BlockingServerStreamingObserver start(ClientCall<Object, Object> call, Object request, int prefetch) {
+        var observer = new BlockingServerStreamingObserver(prefetch);
+        ClientCalls.asyncServerStreamingCall(call, request, observer);
+        return observer;
+    }
+
+    /**
+     * Take the next message, blocks until available.
+     *
+     * @return next message, or {@link #END} if the stream is completed
+     * @throws StatusRuntimeException if the call failed
+     * @throws InterruptedException   if interrupted while waiting
+     */
+    Object take() throws InterruptedException {
+        return next(queue.take());
+    }
+
+    /**
+     * Take the next message, blocks until available or timeout.
+     *
+     * @param timeoutNanos max time to wait, in nanoseconds
+     * @return next message, {@link #END} if the stream is completed, or null if timeout
+     * @throws StatusRuntimeException if the call failed
+     * @throws InterruptedException   if interrupted while waiting
+     */
+    @Nullable Object poll(long timeoutNanos) throws InterruptedException {
+        var element = queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        return element != null ? next(element) : null;
+    }
+
+    /**
+     * @param message cancel message
+     * @param cause   cancel cause
+     */
+    void cancel(String message, @Nullable Throwable cause) {
+        var stream = requestStream;
+        if (stream != null) {
+            stream.cancel(message, cause);
+        }
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+        requestStream.disableAutoRequestWithInitial(prefetch);
+        this.requestStream = requestStream;
+    }
+
+    @Override
+    public void onNext(Object value) {
+        queue.add(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        queue.add(new Failure(t));
+    }
+
+    @Override
+    public void onCompleted() {
+        queue.add(END);
+    }
+
+    private Object next(Object element) {
+        if (element instanceof Failure failure) {
+            queue.add(failure); // keep failing
+            if (failure.cause() instanceof StatusRuntimeException sre) {
+                throw sre;
+            }
+            throw new IllegalStateException("Server streaming call failed", failure.cause());
+        }
+        if (element == END) {
+            queue.add(END); // keep completed
+            return END;
+        }
+        var stream = requestStream;
+        if (stream != null) {
+            stream.request(1);
+        }
+        return element;
+    }
+
+    private record Failure(Throwable cause) {}
+}
@@ -8,6 +8,8 @@ import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import org.springframework.http.HttpHeaders;
 import org.springframework.util.ReflectionUtils;
@@ -25,8 +27,18 @@ import org.springframework.util.ReflectionUtils;
  */
 public class DefaultHeaderConverter implements HeaderConverter {
 
+    /**
+     * Header names come from the clients, bound the cache so arbitrary names can't grow it forever.
+     */
+    private static final int MAX_CACHED_KEYS = 1024;
+
     private final Set<String> removeHeaders; // lower case
 
+    /**
+     * Header name -> metadata key, empty if the header is removed.
+     */
+    private final ConcurrentMap<String, Optional<Metadata.Key<String>>> keys = new ConcurrentHashMap<>();
+
     public DefaultHeaderConverter() {
         this.removeHeaders = getRemoveHeaders();
     }
@@ -34,11 +46,7 @@ public class DefaultHeaderConverter implements HeaderConverter {
     @Override
     public Metadata toMetadata(HttpHeaders headers) {
         Metadata metadata = new Metadata();
-        headers.forEach((k, values) -> {
-            if (!removeHeaders.contains(k.toLowerCase(Locale.ROOT))) {
-                values.forEach(v -> metadata.put(Metadata.Key.of(k, Metadata.ASCII_STRING_MARSHALLER), v));
-            }
-        });
+        headers.forEach((k, values) -> getKey(k).ifPresent(key -> values.forEach(v -> metadata.put(key, v))));
         return metadata;
     }
 
@@ -46,16 +54,28 @@ public class DefaultHeaderConverter implements HeaderConverter {
     public HttpHeaders toHttpHeaders(Metadata headers) {
         HttpHeaders result = new HttpHeaders();
         for (String key : headers.keys()) {
-            if (!removeHeaders.contains(key.toLowerCase(Locale.ROOT))
-                    && !key.startsWith("grpc-")
-                    && !key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
-                Optional.ofNullable(headers.getAll(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER)))
-                        .ifPresent(values -> values.forEach(value -> result.add(key, value)));
+            if (key.startsWith("grpc-") || key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+                continue;
             }
+            getKey(key).map(headers::getAll).ifPresent(values -> values.forEach(value -> result.add(key, value)));
         }
         return result;
     }
 
+    private Optional<Metadata.Key<String>> getKey(String name) {
+        var key = keys.get(name);
+        if (key != null) {
+            return key;
+        }
+        key = removeHeaders.contains(name.toLowerCase(Locale.ROOT))
+                ? Optional.empty()
+                : Optional.of(Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER));
+        if (keys.size() < MAX_CACHED_KEYS) {
+            keys.putIfAbsent(name, key);
+        }
+        return key;
+    }
+
     private Set<String> getRemoveHeaders() {
         Set<String> result = new LinkedHashSet<>(getHttpHeaders());
 
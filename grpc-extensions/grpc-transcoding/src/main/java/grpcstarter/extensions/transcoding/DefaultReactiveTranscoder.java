@@ -1,13 +1,23 @@
 package grpcstarter.extensions.transcoding;
 
-import static grpcstarter.extensions.transcoding.JsonUtil.canParseJson;
 import static grpcstarter.extensions.transcoding.TranscodingUtil.toHttpStatus;
+import static grpcstarter.extensions.transcoding.Util.APPLICATION_PROTOBUF;
 import static grpcstarter.extensions.transcoding.Util.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
-import static grpcstarter.extensions.transcoding.Util.buildRequestMessage;
-import static grpcstarter.extensions.transcoding.Util.getReactiveRoutes;
+import static grpcstarter.extensions.transcoding.Util.acceptsNdjson;
+import static grpcstarter.extensions.transcoding.Util.acceptsProtobuf;
+import static grpcstarter.extensions.transcoding.Util.fillRoutes;
+import static grpcstarter.extensions.transcoding.Util.getBytesResponseBodyField;
+import static grpcstarter.extensions.transcoding.Util.getCallOptions;
+import static grpcstarter.extensions.transcoding.Util.getContentLength;
+import static grpcstarter.extensions.transcoding.Util.getMaxRequestBodySize;
 import static grpcstarter.extensions.transcoding.Util.getTranscodingChannel;
+import static grpcstarter.extensions.transcoding.Util.isProtobuf;
+import static grpcstarter.extensions.transcoding.Util.parseRequestMessage;
+import static grpcstarter.extensions.transcoding.Util.requestBodyTooLarge;
 import static grpcstarter.extensions.transcoding.Util.shutdown;
 import static grpcstarter.extensions.transcoding.Util.trimRight;
+import static io.grpc.MethodDescriptor.MethodType.BIDI_STREAMING;
+import static io.grpc.MethodDescriptor.MethodType.CLIENT_STREAMING;
 import static io.grpc.MethodDescriptor.MethodType.SERVER_STREAMING;
 import static io.grpc.MethodDescriptor.MethodType.UNARY;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
@@ -15,39 +25,57 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import grpcstarter.extensions.transcoding.TranscodingMetrics.Payload;
+import grpcstarter.extensions.transcoding.TranscodingMetrics.Phase;
+import grpcstarter.extensions.transcoding.TranscodingResponseCache.CachedResponse;
 import grpcstarter.extensions.transcoding.Util.Route;
 import grpcstarter.server.GrpcServerProperties;
 import grpcstarter.server.GrpcServerStartedEvent;
 import io.grpc.BindableService;
-import io.grpc.CallOptions;
 import io.grpc.Channel;
 import io.grpc.ClientCall;
-import io.grpc.ClientInterceptors;
 import io.grpc.Metadata;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.ClientCalls;
-import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.EntityResponse;
 import org.springframework.web.reactive.function.server.HandlerFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -63,66 +91,98 @@ public class DefaultReactiveTranscoder
 
     private static final String MATCHING_ROUTE = DefaultReactiveTranscoder.class.getName() + ".matchingRoute";
 
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
     /**
      * grpc full method name -> route
      *
      * <p> e.g. "grpc.testing.SimpleService/UnaryRpc" -> Route
      */
-    private final Map<String, Route<ServerRequest>> autoMappingRoutes = new HashMap<>();
+    private final Map<String, Route> autoMappingRoutes = new HashMap<>();
 
-    private final List<Route<ServerRequest>> customRoutes = new ArrayList<>();
+    private final RouteIndex customRoutes = new RouteIndex();
 
+    private final @Nullable Channel directDispatchChannel;
     private final HeaderConverter headerConverter;
     private final GrpcTranscodingProperties grpcTranscodingProperties;
     private final GrpcServerProperties grpcServerProperties;
     private final ReactiveTranscodingExceptionResolver transcodingExceptionResolver;
+    private final TranscodingMetrics transcodingMetrics;
+    private final @Nullable TranscodingResponseCache responseCache;
+    private final @Nullable TranscodingRequestCoalescer requestCoalescer;
+    private final @Nullable TranscodingConcurrencyLimiter concurrencyLimiter;
+    private final long maxRequestBodySize;
+    private final @Nullable TranscodingBatch batch;
 
     private @Nullable Channel channel;
 
+    private volatile @Nullable WebSocketService webSocketService;
+
     public DefaultReactiveTranscoder(
             List<BindableService> services,
             HeaderConverter headerConverter,
             GrpcTranscodingProperties grpcTranscodingProperties,
             GrpcServerProperties grpcServerProperties,
             ReactiveTranscodingExceptionResolver transcodingExceptionResolver,
-            List<TranscodingCustomizer> transcodingCustomizers) {
-        getReactiveRoutes(services, autoMappingRoutes, customRoutes, grpcTranscodingProperties, transcodingCustomizers);
+            List<TranscodingCustomizer> transcodingCustomizers,
+            @Nullable Channel directDispatchChannel,
+            TranscodingMetrics transcodingMetrics,
+            @Nullable TranscodingResponseCache responseCache,
+            @Nullable TranscodingRequestCoalescer requestCoalescer,
+            @Nullable TranscodingConcurrencyLimiter concurrencyLimiter) {
+        fillRoutes(services, autoMappingRoutes, customRoutes, grpcTranscodingProperties, transcodingCustomizers);
+        this.directDispatchChannel = directDispatchChannel;
         this.headerConverter = headerConverter;
         this.grpcTranscodingProperties = grpcTranscodingProperties;
         this.grpcServerProperties = grpcServerProperties;
         this.transcodingExceptionResolver = transcodingExceptionResolver;
+        this.transcodingMetrics = transcodingMetrics;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.maxRequestBodySize = getMaxRequestBodySize(grpcTranscodingProperties, grpcServerProperties);
+        this.batch = grpcTranscodingProperties.getBatch().isEnabled()
+                ? new TranscodingBatch(grpcTranscodingProperties.getBatch(), autoMappingRoutes, customRoutes)
+                : null;
     }
 
     @Override
     public void onApplicationEvent(GrpcServerStartedEvent event) {
-        channel = getTranscodingChannel(event.getSource().getPort(), grpcTranscodingProperties, grpcServerProperties);
+        channel = directDispatchChannel != null
+                ? directDispatchChannel
+                : getTranscodingChannel(event.getSource().getPort(), grpcTranscodingProperties, grpcServerProperties);
     }
 
     @Override
     public Mono<HandlerFunction<ServerResponse>> route(ServerRequest request) {
-        if (Objects.equals(request.method(), HttpMethod.POST)) {
+        var b = batch;
+        if (b != null && b.matches(request.method(), request.path())) {
+            return Mono.just(r -> processBatch(r, b));
+        }
+
+        boolean post = Objects.equals(request.method(), HttpMethod.POST);
+        if (post || isWebSocketUpgrade(request)) {
             var route = autoMappingRoutes.get(trimRight(request.path(), '/'));
-            if (route != null) {
+            // Bidi streaming routes are served over WebSocket, which is always upgraded from GET
+            if (route != null && (post || route.invokeMethod().getType() == BIDI_STREAMING)) {
                 request.attributes().put(MATCHING_ROUTE, route);
                 return Mono.just(this);
             }
         }
 
-        for (var route : customRoutes) {
-            if (route.predicate().test(request)
-                    || route.additionalPredicates().stream().anyMatch(p -> p.test(request))) {
-                request.attributes().put(MATCHING_ROUTE, route);
-                return Mono.just(this);
-            }
+        var match = customRoutes.match(request.method(), request.path());
+        if (match != null) {
+            request.attributes().put(MATCHING_ROUTE, match.route());
+            request.attributes().put(URI_TEMPLATE_VARIABLES_ATTRIBUTE, match.pathVariables());
+            return Mono.just(this);
         }
 
         return Mono.empty();
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Mono<ServerResponse> handle(ServerRequest request) {
-        var route = (Route<ServerRequest>) request.attributes().get(MATCHING_ROUTE);
+        var route = (Route) request.attributes().get(MATCHING_ROUTE);
         if (route == null) {
             return ServerResponse.badRequest().build();
         }
@@ -137,125 +197,559 @@ public class DefaultReactiveTranscoder
             return processServerStreamingCall(request, route);
         }
 
+        if (methodType == CLIENT_STREAMING) {
+            return processClientStreamingCall(request, route);
+        }
+
+        if (methodType == BIDI_STREAMING) {
+            return processBidiStreamingCall(request, route);
+        }
+
         throw new ResponseStatusException(BAD_REQUEST, "Unsupported rpc method type: " + methodType);
     }
 
+    private ClientCall<Object, Object> getCall(Route route, ServerRequest request) {
+        return getCall(route, request, headerConverter.toMetadata(request.headers().asHttpHeaders()), null, null);
+    }
+
+    private ClientCall<Object, Object> getCall(
+            Route route,
+            ServerRequest request,
+            AtomicReference<Metadata> responseHeaders,
+            AtomicReference<Metadata> responseTrailers) {
+        var metadata = headerConverter.toMetadata(request.headers().asHttpHeaders());
+        return getCall(route, request, metadata, responseHeaders, responseTrailers);
+    }
+
+    /**
+     * Create the call with the deadline and the concurrency limit of the route, the converted http headers are
+     * attached to the call.
+     */
     @SuppressWarnings("unchecked")
-    private static ClientCall<Object, Object> getCall(Channel channel, Route<ServerRequest> route) {
-        return (ClientCall<Object, Object>) channel.newCall(route.invokeMethod(), CallOptions.DEFAULT);
-    }
-
-    private Mono<ServerResponse> processServerStreamingCall(ServerRequest request, Route<ServerRequest> route) {
-        return request.bodyToMono(DataBuffer.class)
-                .defaultIfEmpty(request.exchange().getResponse().bufferFactory().wrap(new byte[0]))
-                .flatMap(buf -> {
-                    var transcoder = getTranscoder(request, buf);
-                    var msg = getMessage(route, transcoder);
-                    // forwards http headers
-                    var chan = ClientInterceptors.intercept(
-                            mustGetChannel(),
-                            MetadataUtils.newAttachHeadersInterceptor(
-                                    headerConverter.toMetadata(request.headers().asHttpHeaders())));
-                    var call = getCall(chan, route);
-                    var response = Flux.<ServerSentEvent<String>>create(
-                            sink -> ClientCalls.asyncServerStreamingCall(call, msg, new StreamObserver<>() {
-                                @Override
-                                public void onNext(Object o) {
-                                    String json = JsonUtil.toJson(transcoder.out((Message) o, route.httpRule()));
-                                    sink.next(ServerSentEvent.<String>builder()
-                                            .data(json)
-                                            .build());
-                                }
-
-                                @Override
-                                public void onError(Throwable throwable) {
-                                    if (throwable instanceof StatusRuntimeException sre) {
-                                        sink.error(new TranscodingRuntimeException(
-                                                toHttpStatus(sre.getStatus()), sre.getMessage(), null));
-                                    } else {
-                                        sink.error(throwable);
-                                    }
-                                }
-
-                                @Override
-                                public void onCompleted() {
-                                    sink.complete();
-                                }
-                            }));
-                    return ServerResponse.ok().body(response, ServerSentEvent.class);
+    private ClientCall<Object, Object> getCall(
+            Route route,
+            ServerRequest request,
+            Metadata metadata,
+            @Nullable AtomicReference<Metadata> responseHeaders,
+            @Nullable AtomicReference<Metadata> responseTrailers) {
+        var callOptions =
+                getCallOptions(grpcTranscodingProperties.getDeadline(), route, request.headers().asHttpHeaders());
+        var call = HeaderForwardingClientCall.wrap(
+                (ClientCall<Object, Object>) mustGetChannel().newCall(route.invokeMethod(), callOptions),
+                metadata,
+                responseHeaders,
+                responseTrailers);
+        var limiter = concurrencyLimiter;
+        return limiter != null ? limiter.limit(call, route) : call;
+    }
+
+    private Mono<ServerResponse> processServerStreamingCall(ServerRequest request, Route route) {
+        return readBody(request).flatMap(buf -> {
+            var transcoder = getTranscoder(request, buf);
+            var msg = decode(route, transcoder, buf);
+            var bytesField = grpcTranscodingProperties.isRawBytesResponseBody()
+                    ? getBytesResponseBodyField(route)
+                    : null;
+            if (bytesField != null) {
+                // Write the bytes field of each response message as is, no SSE framing
+                var headers = new AtomicReference<Metadata>();
+                var call = getCall(
+                        route, request, headerConverter.toMetadata(request.headers().asHttpHeaders()), headers, null);
+                var response = request.exchange().getResponse();
+                // Response headers arrive before the first chunk, the response is committed with the first chunk
+                response.beforeCommit(() -> {
+                    var contentLength =
+                            getContentLength(headers.get(), grpcTranscodingProperties.getRawBytesContentLengthKey());
+                    if (contentLength != null && HttpStatus.OK.equals(response.getStatusCode())) {
+                        response.getHeaders().setContentLength(contentLength);
+                    }
+                    return Mono.empty();
+                });
+                var bufferFactory = response.bufferFactory();
+                var chunks = DemandDrivenResponseObserver.asFlux(
+                        call,
+                        msg,
+                        grpcTranscodingProperties.getServerStreamingPrefetch(),
+                        o -> bufferFactory.wrap(
+                                ((ByteString) ((Message) o).getField(bytesField)).asReadOnlyByteBuffer()));
+                return ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(BodyInserters.fromDataBuffers(chunks));
+            }
+            var call = getCall(route, request);
+            if (acceptsNdjson(request.headers().accept())) {
+                return processNdjsonStreamingCall(request, route, transcoder, call, msg);
+            }
+            var response = DemandDrivenResponseObserver.asFlux(
+                    call,
+                    msg,
+                    grpcTranscodingProperties.getServerStreamingPrefetch(),
+                    o -> {
+                        long start = System.nanoTime();
+                        var json = JsonUtil.toJson(transcoder.out((Message) o, route.httpRule()));
+                        transcodingMetrics.recordDuration(
+                                route.invokeMethod().getFullMethodName(),
+                                Phase.ENCODE,
+                                System.nanoTime() - start);
+                        return ServerSentEvent.<String>builder().data(json).build();
+                    });
+            return ServerResponse.ok().body(response, ServerSentEvent.class);
+        });
+    }
+
+    /**
+     * Write each response message as a line of JSON (NDJSON), lines are batched into one buffer and flushed together.
+     *
+     * @see GrpcTranscodingProperties.Ndjson
+     */
+    private Mono<ServerResponse> processNdjsonStreamingCall(
+            ServerRequest request, Route route, Transcoder transcoder, ClientCall<Object, Object> call, Message msg) {
+        var ndjson = grpcTranscodingProperties.getNdjson();
+        var method = route.invokeMethod().getFullMethodName();
+        var bufferFactory = request.exchange().getResponse().bufferFactory();
+        var batches = DemandDrivenResponseObserver.asFlux(
+                        call, msg, grpcTranscodingProperties.getServerStreamingPrefetch(), o -> {
+                            long start = System.nanoTime();
+                            var json = JsonUtil.toJson(transcoder.out((Message) o, route.httpRule()));
+                            transcodingMetrics.recordDuration(method, Phase.ENCODE, System.nanoTime() - start);
+                            return json.getBytes(StandardCharsets.UTF_8);
+                        })
+                .bufferTimeout(Math.max(ndjson.getFlushMessages(), 1), ndjson.getFlushInterval(), true)
+                .map(lines -> {
+                    int size = 0;
+                    for (var line : lines) {
+                        size += line.length + 1;
+                    }
+                    var buffer = bufferFactory.allocateBuffer(size);
+                    for (var line : lines) {
+                        buffer.write(line);
+                        buffer.write((byte) '\n');
+                    }
+                    return Mono.just(buffer);
                 });
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body((response, context) -> response.writeAndFlushWith(batches));
+    }
+
+    /**
+     * Execute the items of the batch request concurrently.
+     *
+     * @see TranscodingBatch
+     */
+    private Mono<ServerResponse> processBatch(ServerRequest request, TranscodingBatch batch) {
+        return readBody(request).flatMap(buf -> {
+            List<TranscodingBatch.Item> items;
+            try {
+                items = batch.parse(buf.asInputStream());
+            } finally {
+                DataBufferUtils.release(buf);
+            }
+            // converted once, shared by the calls of the items
+            var metadata = headerConverter.toMetadata(request.headers().asHttpHeaders());
+            return Mono.fromFuture(() -> batch.execute(items, r -> {
+                        long start = System.nanoTime();
+                        var call = getCall(r.route(), request, metadata, null, null);
+                        return TranscodingBatch.unaryCall(call, r.message())
+                                .whenComplete((m, e) -> recordCall(r.route(), start));
+                    }))
+                    .flatMapMany(Flux::fromIterable)
+                    .concatMap(o -> {
+                        var error = o.error();
+                        return error != null ? toBatchResult(error) : Mono.just(TranscodingBatch.Result.ok(o));
+                    })
+                    .collectList()
+                    .flatMap(results -> ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(TranscodingBatch.toJson(results)));
+        });
+    }
+
+    /**
+     * Map the failure of a batch item by the {@link ReactiveTranscodingExceptionResolver}, the body of the resolved
+     * response is kept if it is an {@link EntityResponse}.
+     */
+    private Mono<TranscodingBatch.Result> toBatchResult(Throwable error) {
+        Mono<TranscodingBatch.Result> result = error instanceof StatusRuntimeException sre
+                ? Mono.<ServerResponse>create(sink -> transcodingExceptionResolver.resolve(sink, sre))
+                        .map(response -> new TranscodingBatch.Result(
+                                response.statusCode().value(),
+                                response instanceof EntityResponse<?> entity ? entity.entity() : null,
+                                sre.getMessage()))
+                : Mono.error(error);
+        var internalError = new TranscodingBatch.Result(HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null);
+        return result.onErrorResume(ResponseStatusException.class, e -> Mono.just(
+                        new TranscodingBatch.Result(e.getStatusCode().value(), null, e.getReason())))
+                .onErrorReturn(internalError)
+                .defaultIfEmpty(internalError);
+    }
+
+    /**
+     * Read the whole request body, fails with 413 as soon as the body exceeds {@link #maxRequestBodySize}, the body is
+     * never buffered beyond the limit.
+     */
+    private Mono<DataBuffer> readBody(ServerRequest request) {
+        if (request.headers().contentLength().orElse(-1) > maxRequestBodySize) {
+            return Mono.error(requestBodyTooLarge(maxRequestBodySize));
+        }
+        return DataBufferUtils.join(
+                        request.body(BodyExtractors.toDataBuffers()),
+                        (int) Math.min(maxRequestBodySize, Integer.MAX_VALUE))
+                .onErrorMap(DataBufferLimitException.class, e -> requestBodyTooLarge(maxRequestBodySize))
+                .defaultIfEmpty(request.exchange().getResponse().bufferFactory().wrap(new byte[0]));
     }
 
     private static Transcoder getTranscoder(ServerRequest request, DataBuffer buf) {
+        return Transcoder.create(
+                getVariable(request, buf.asInputStream()),
+                isProtobuf(request.headers().contentType().orElse(null)));
+    }
+
+    private static Transcoder.Variable getVariable(ServerRequest request, InputStream body) {
         var uriTemplateVariables = request.exchange().getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
         @SuppressWarnings("unchecked")
         Map<String, String> templateVars =
                 uriTemplateVariables != null ? (Map<String, String>) uriTemplateVariables : Map.of();
-        return Transcoder.create(
-                new Transcoder.Variable(getByteString(buf), convert(request.queryParams()), templateVars));
-    }
-
-    private Mono<ServerResponse> processUnaryCall(ServerRequest request, Route<ServerRequest> route) {
-        return request.bodyToMono(DataBuffer.class)
-                .defaultIfEmpty(request.exchange().getResponse().bufferFactory().wrap(new byte[0]))
-                .flatMap(buf -> {
-                    var transcoder = getTranscoder(request, buf);
-                    Message msg = getMessage(route, transcoder);
-                    var headers = new AtomicReference<Metadata>();
-                    var trailers = new AtomicReference<Metadata>();
-                    var chan = ClientInterceptors.intercept(
-                            mustGetChannel(),
-                            MetadataUtils.newCaptureMetadataInterceptor(headers, trailers),
-                            MetadataUtils.newAttachHeadersInterceptor(
-                                    headerConverter.toMetadata(request.headers().asHttpHeaders())));
-                    var call = getCall(chan, route);
-                    return Mono.create(sink -> ClientCalls.asyncUnaryCall(call, msg, new StreamObserver<>() {
-                        @Override
-                        public void onNext(Object o) {
-                            var builder = ServerResponse.ok().headers(h -> {
-                                Metadata m = headers.get();
-                                if (m != null) {
-                                    h.addAll(headerConverter.toHttpHeaders(m));
-                                }
-                            });
-                            var body = transcoder.out((Message) o, route.httpRule());
-                            if (canParseJson(body)) {
-                                builder.contentType(MediaType.APPLICATION_JSON);
-                            }
-                            builder.body(Mono.just(JsonUtil.toJson(body)), String.class)
-                                    .subscribe(sink::success, sink::error);
-                        }
+        return new Transcoder.Variable(body, convert(request.queryParams()), templateVars);
+    }
+
+    /**
+     * Build the request message from a line of the NDJSON request body or a WebSocket text message, the query
+     * parameters and path variables are applied to every message.
+     */
+    private static Message decodeLine(ServerRequest request, Route route, String line) {
+        var transcoder = Transcoder.create(getVariable(request, ByteString.copyFromUtf8(line).newInput()));
+        return parseMessage(route, transcoder).build();
+    }
 
-                        @Override
-                        public void onError(Throwable throwable) {
-                            if (throwable instanceof StatusRuntimeException sre) {
-                                transcodingExceptionResolver.resolve(sink, sre);
-                            } else {
-                                sink.error(throwable);
-                            }
+    /**
+     * The transcoder is only used to extract the response body.
+     */
+    private static Transcoder getResponseTranscoder() {
+        return Transcoder.create(new Transcoder.Variable(ByteString.EMPTY, null, null));
+    }
+
+    /**
+     * Each line of the request body is a request message in JSON (NDJSON), lines are decoded and sent one by one under
+     * the flow control of the call, the request body is never buffered as a whole.
+     */
+    private Mono<ServerResponse> processClientStreamingCall(ServerRequest request, Route route) {
+        var headers = new AtomicReference<Metadata>();
+        var trailers = new AtomicReference<Metadata>();
+        var call = getCall(route, request, headers, trailers);
+
+        var decoder = StringDecoder.allMimeTypes();
+        decoder.setMaxInMemorySize((int) Math.min(maxRequestBodySize, Integer.MAX_VALUE));
+        var requests = decoder.decode(request.body(BodyExtractors.toDataBuffers()), STRING_TYPE, null, null)
+                .onErrorMap(DataBufferLimitException.class, e -> requestBodyTooLarge(maxRequestBodySize))
+                .filter(line -> !line.isBlank())
+                .map(line -> decodeLine(request, route, line));
+        var transcoder = getResponseTranscoder();
+        boolean protobuf = acceptsProtobuf(request.headers().accept());
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return FlowControlledRequestSubscriber.clientStreamingCall(call, requests)
+                    .doOnTerminate(() -> recordCall(route, start))
+                    .flatMap(o -> toServerResponse(
+                            request, route, transcoder, headers.get(), (Message) o, protobuf, null))
+                    .onErrorResume(StatusRuntimeException.class, sre -> {
+                        // The call is cancelled with the cause if a request message is invalid
+                        if (sre.getCause() instanceof ResponseStatusException rse) {
+                            return Mono.error(rse);
                         }
+                        return Mono.create(sink -> transcodingExceptionResolver.resolve(sink, sre));
+                    });
+        });
+    }
 
-                        @Override
-                        public void onCompleted() {
-                            sink.success();
+    /**
+     * Each WebSocket text message is a request message in JSON, each response message is sent back as a WebSocket
+     * text message in JSON.
+     */
+    private Mono<ServerResponse> processBidiStreamingCall(ServerRequest request, Route route) {
+        if (!isWebSocketUpgrade(request)) {
+            throw new ResponseStatusException(BAD_REQUEST, "Bidi streaming rpc is only supported over WebSocket");
+        }
+        var call = getCall(route, request);
+        var transcoder = getResponseTranscoder();
+
+        WebSocketHandler handler = session -> {
+            var requests = session.receive().map(m -> decodeLine(request, route, m.getPayloadAsText()));
+            var responses = DemandDrivenResponseObserver.asBidiFlux(
+                    call,
+                    requests,
+                    grpcTranscodingProperties.getServerStreamingPrefetch(),
+                    o -> session.textMessage(JsonUtil.toJson(transcoder.out((Message) o, route.httpRule()))));
+            return session.send(responses).onErrorResume(e -> session.close(CloseStatus.SERVER_ERROR));
+        };
+        // The response is written by the WebSocket handshake, no ServerResponse
+        return getWebSocketService().handleRequest(request.exchange(), handler).then(Mono.empty());
+    }
+
+    private WebSocketService getWebSocketService() {
+        var service = webSocketService;
+        if (service == null) {
+            service = new HandshakeWebSocketService();
+            webSocketService = service;
+        }
+        return service;
+    }
+
+    private static boolean isWebSocketUpgrade(ServerRequest request) {
+        return Objects.equals(request.method(), HttpMethod.GET)
+                && "websocket".equalsIgnoreCase(request.headers().firstHeader(HttpHeaders.UPGRADE));
+    }
+
+    private Mono<ServerResponse> processUnaryCall(ServerRequest request, Route route) {
+        return readBody(request).flatMap(buf -> {
+            var transcoder = getTranscoder(request, buf);
+            Message msg = decode(route, transcoder, buf);
+            boolean protobuf = acceptsProtobuf(request.headers().accept());
+
+            var cache = responseCache;
+            var cacheKey = cache != null
+                    ? cache.getKey(
+                            request.method(), route, msg, request.headers().asHttpHeaders(), protobuf)
+                    : null;
+            if (cache != null && cacheKey != null) {
+                var cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return toServerResponse(
+                            request, cached, request.exchange().getResponse().bufferFactory());
+                }
+            }
+
+            var headers = new AtomicReference<Metadata>();
+            var trailers = new AtomicReference<Metadata>();
+            var call = getCall(route, request, headers, trailers);
+
+            var coalescer = requestCoalescer;
+            var coalescingKey = coalescer != null
+                    ? coalescer.getKey(request.method(), route, msg, request.headers().asHttpHeaders())
+                    : null;
+            if (coalescer != null && coalescingKey != null) {
+                var result = coalescer.execute(coalescingKey, () -> unaryCall(route, call, msg, headers));
+                // The result is shared by all the waiters, cancelling one of them must not cancel it
+                return Mono.fromFuture(result, true)
+                        .flatMap(response -> toServerResponse(
+                                request,
+                                route,
+                                transcoder,
+                                response.headers(),
+                                response.message(),
+                                protobuf,
+                                cacheKey))
+                        .onErrorResume(
+                                StatusRuntimeException.class,
+                                sre -> Mono.create(sink -> transcodingExceptionResolver.resolve(sink, sre)));
+            }
+
+            long start = System.nanoTime();
+            return Mono.create(sink -> {
+                // Cancel the call when the exchange is cancelled, e.g. the client disconnects
+                sink.onCancel(() -> call.cancel("Transcoding client cancelled", null));
+                ClientCalls.asyncUnaryCall(call, msg, new StreamObserver<>() {
+                    @Override
+                    public void onNext(Object o) {
+                        recordCall(route, start);
+                        toServerResponse(request, route, transcoder, headers.get(), (Message) o, protobuf, cacheKey)
+                                .subscribe(sink::success, sink::error);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        recordCall(route, start);
+                        if (throwable instanceof StatusRuntimeException sre) {
+                            transcodingExceptionResolver.resolve(sink, sre);
+                        } else {
+                            sink.error(throwable);
                         }
-                    }));
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        sink.success();
+                    }
                 });
+            });
+        });
+    }
+
+    /**
+     * Start the call, the result carries the response headers captured by the call.
+     */
+    private CompletableFuture<TranscodingRequestCoalescer.Response> unaryCall(
+            Route route, ClientCall<Object, Object> call, Message msg, AtomicReference<Metadata> headers) {
+        var future = new CompletableFuture<TranscodingRequestCoalescer.Response>();
+        long start = System.nanoTime();
+        ClientCalls.asyncUnaryCall(call, msg, new StreamObserver<>() {
+            @Override
+            public void onNext(Object o) {
+                recordCall(route, start);
+                future.complete(new TranscodingRequestCoalescer.Response((Message) o, headers.get()));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                recordCall(route, start);
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                // result is completed in onNext
+            }
+        });
+        return future;
+    }
+
+    private Mono<ServerResponse> toServerResponse(
+            ServerRequest request,
+            Route route,
+            Transcoder transcoder,
+            @Nullable Metadata headers,
+            Message responseMessage,
+            boolean protobuf,
+            @Nullable TranscodingResponseCache.Key cacheKey) {
+        var bufferFactory = request.exchange().getResponse().bufferFactory();
+        var httpHeaders = headers != null ? headerConverter.toHttpHeaders(headers) : new HttpHeaders();
+        var body = transcoder.out(responseMessage, route.httpRule());
+        boolean protobufBody = body instanceof Message && protobuf;
+
+        var etag = grpcTranscodingProperties.getEtag();
+        if (etag.isEnabled() && HttpMethod.GET.equals(request.method())) {
+            httpHeaders.setETag(ETagUtil.getETag(headers, etag.getMetadataKey(), responseMessage, protobufBody));
+        }
+
+        MediaType contentType;
+        Supplier<DataBuffer> encoder;
+        if (protobufBody) {
+            contentType = APPLICATION_PROTOBUF;
+            encoder = () -> toProtobufBuffer((Message) body, bufferFactory);
+        } else if (body instanceof ByteString bytes && grpcTranscodingProperties.isRawBytesResponseBody()) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM;
+            encoder = () -> bufferFactory.wrap(bytes.asReadOnlyByteBuffer());
+            httpHeaders.setContentLength(bytes.size());
+        } else {
+            contentType = JsonUtil.getContentType(body);
+            encoder = () -> toJsonBuffer(body, bufferFactory);
+        }
+
+        var cache = responseCache;
+        if (cache != null && cacheKey != null) {
+            // Serialize once, the bytes are both cached and written
+            var buffer = encode(route, encoder);
+            var bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            var cached = new CachedResponse(UnsafeByteOperations.unsafeWrap(bytes), contentType, httpHeaders);
+            cache.put(cacheKey, route, cached);
+            return toServerResponse(request, cached, bufferFactory);
+        }
+
+        var notModified = notModified(request, httpHeaders);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        var buffer = encode(route, encoder);
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(httpHeaders))
+                .contentType(contentType)
+                .body(BodyInserters.fromDataBuffers(Mono.just(buffer)));
+    }
+
+    private static Mono<ServerResponse> toServerResponse(
+            ServerRequest request, CachedResponse cached, DataBufferFactory bufferFactory) {
+        var notModified = notModified(request, cached.headers());
+        if (notModified != null) {
+            return notModified;
+        }
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(cached.headers()))
+                .contentType(cached.contentType())
+                .body(BodyInserters.fromDataBuffers(
+                        Mono.fromSupplier(() -> bufferFactory.wrap(cached.body().asReadOnlyByteBuffer()))));
+    }
+
+    /**
+     * @return 304 response if the {@code If-None-Match} request header matches the ETag, otherwise null
+     */
+    @Nullable
+    private static Mono<ServerResponse> notModified(ServerRequest request, HttpHeaders responseHeaders) {
+        var etag = responseHeaders.getETag();
+        if (etag == null || !ETagUtil.matches(request.headers().asHttpHeaders().getIfNoneMatch(), etag)) {
+            return null;
+        }
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).headers(h -> h.addAll(responseHeaders)).build();
     }
 
-    private static Message getMessage(Route<?> route, Transcoder transcoder) {
+    private static Message.Builder parseMessage(Route route, Transcoder transcoder) {
         try {
-            return buildRequestMessage(transcoder, route);
+            return parseRequestMessage(transcoder, route);
         } catch (InvalidProtocolBufferException e) {
             throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read request body", e);
         }
     }
 
-    private static ByteString getByteString(DataBuffer buf) {
-        try (InputStream is = buf.asInputStream(true)) {
-            return ByteString.copyFrom(is.readAllBytes());
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to read DataBuffer", e);
+    /**
+     * Parse the request message, the body buffer is released once the message is parsed.
+     */
+    private static Message.Builder parseMessage(Route route, Transcoder transcoder, DataBuffer buf) {
+        try {
+            return parseMessage(route, transcoder);
+        } finally {
+            DataBufferUtils.release(buf);
+        }
+    }
+
+    private Message decode(Route route, Transcoder transcoder, DataBuffer buf) {
+        var method = route.invokeMethod().getFullMethodName();
+        transcodingMetrics.recordPayloadSize(method, Payload.REQUEST, buf.readableByteCount());
+        long start = System.nanoTime();
+        var builder = parseMessage(route, transcoder, buf);
+        long parsed = System.nanoTime();
+        transcodingMetrics.recordDuration(method, Phase.PARSE, parsed - start);
+        var message = builder.build();
+        transcodingMetrics.recordDuration(method, Phase.BUILD, System.nanoTime() - parsed);
+        return message;
+    }
+
+    private void recordCall(Route route, long start) {
+        transcodingMetrics.recordDuration(
+                route.invokeMethod().getFullMethodName(), Phase.CALL, System.nanoTime() - start);
+    }
+
+    private DataBuffer encode(Route route, Supplier<DataBuffer> encoder) {
+        var method = route.invokeMethod().getFullMethodName();
+        long start = System.nanoTime();
+        var buffer = encoder.get();
+        transcodingMetrics.recordDuration(method, Phase.ENCODE, System.nanoTime() - start);
+        transcodingMetrics.recordPayloadSize(method, Payload.RESPONSE, buffer.readableByteCount());
+        return buffer;
+    }
+
+    private static DataBuffer toProtobufBuffer(Message message, DataBufferFactory bufferFactory) {
+        var buffer = bufferFactory.allocateBuffer(message.getSerializedSize());
+        try (OutputStream os = buffer.asOutputStream()) {
+            message.writeTo(os);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw new IllegalStateException("Failed to write protobuf", e);
+        }
+    }
+
+    private static DataBuffer toJsonBuffer(Object body, DataBufferFactory bufferFactory) {
+        var buffer = bufferFactory.allocateBuffer(256);
+        try (OutputStream os = buffer.asOutputStream()) {
+            JsonUtil.writeJson(body, os);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw new IllegalStateException("Failed to write JSON", e);
         }
     }
 
@@ -266,7 +760,8 @@ public class DefaultReactiveTranscoder
 
     @Override
     public void destroy() throws Exception {
-        if (channel != null) {
+        // the direct dispatch channel is shared, closed by the application context
+        if (channel != null && channel != directDispatchChannel) {
             shutdown(channel, Duration.ofSeconds(15));
         }
     }
@@ -1,50 +1,77 @@
 package grpcstarter.extensions.transcoding;
 
-import static grpcstarter.extensions.transcoding.JsonUtil.canParseJson;
 import static grpcstarter.extensions.transcoding.TranscodingUtil.toHttpStatus;
+import static grpcstarter.extensions.transcoding.Util.APPLICATION_PROTOBUF;
 import static grpcstarter.extensions.transcoding.Util.Route;
 import static grpcstarter.extensions.transcoding.Util.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
-import static grpcstarter.extensions.transcoding.Util.buildRequestMessage;
+import static grpcstarter.extensions.transcoding.Util.acceptsNdjson;
+import static grpcstarter.extensions.transcoding.Util.acceptsProtobuf;
 import static grpcstarter.extensions.transcoding.Util.fillRoutes;
+import static grpcstarter.extensions.transcoding.Util.getBytesResponseBodyField;
+import static grpcstarter.extensions.transcoding.Util.getCallOptions;
+import static grpcstarter.extensions.transcoding.Util.getContentLength;
+import static grpcstarter.extensions.transcoding.Util.getMaxRequestBodySize;
 import static grpcstarter.extensions.transcoding.Util.getTranscodingChannel;
+import static grpcstarter.extensions.transcoding.Util.isProtobuf;
+import static grpcstarter.extensions.transcoding.Util.parseRequestMessage;
+import static grpcstarter.extensions.transcoding.Util.requestBodyTooLarge;
 import static grpcstarter.extensions.transcoding.Util.shutdown;
 import static grpcstarter.extensions.transcoding.Util.trimRight;
+import static io.grpc.MethodDescriptor.MethodType.CLIENT_STREAMING;
 import static io.grpc.MethodDescriptor.MethodType.SERVER_STREAMING;
 import static io.grpc.MethodDescriptor.MethodType.UNARY;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
-import static org.springframework.util.StreamUtils.copyToByteArray;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import grpcstarter.extensions.transcoding.GrpcTranscodingProperties.ServletUnaryMode;
+import grpcstarter.extensions.transcoding.TranscodingMetrics.Payload;
+import grpcstarter.extensions.transcoding.TranscodingMetrics.Phase;
+import grpcstarter.extensions.transcoding.TranscodingResponseCache.CachedResponse;
 import grpcstarter.server.GrpcServerProperties;
 import grpcstarter.server.GrpcServerStartedEvent;
 import io.grpc.BindableService;
-import io.grpc.CallOptions;
 import io.grpc.Channel;
 import io.grpc.ClientCall;
-import io.grpc.ClientInterceptors;
 import io.grpc.Metadata;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.ClientCalls;
-import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import lombok.SneakyThrows;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationListener;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.function.EntityResponse;
 import org.springframework.web.servlet.function.HandlerFunction;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
@@ -59,20 +86,31 @@ public class DefaultServletTranscoder
         implements ServletTranscoder, DisposableBean, ApplicationListener<GrpcServerStartedEvent> {
 
     private static final String MATCHING_ROUTE = DefaultServletTranscoder.class + ".matchingRoute";
+    private static final String CANCEL_CALL_INTERCEPTOR = DefaultServletTranscoder.class + ".cancelCall";
+
 
     /**
      * grpc full method name -> route
      *
      * <p> e.g. "grpc.testing.SimpleService/UnaryRpc" -> Route
      */
-    private final Map<String, Route<ServerRequest>> autoMappingRoutes = new HashMap<>();
+    private final Map<String, Route> autoMappingRoutes = new HashMap<>();
 
-    private final List<Route<ServerRequest>> customRoutes = new ArrayList<>();
+    private final RouteIndex customRoutes = new RouteIndex();
 
+    private final @Nullable Channel directDispatchChannel;
     private final HeaderConverter headerConverter;
     private final GrpcTranscodingProperties grpcTranscodingProperties;
     private final GrpcServerProperties grpcServerProperties;
     private final TranscodingExceptionResolver transcodingExceptionResolver;
+    private final TranscodingMetrics transcodingMetrics;
+    private final @Nullable TranscodingResponseCache responseCache;
+    private final @Nullable TranscodingRequestCoalescer requestCoalescer;
+    private final @Nullable TranscodingConcurrencyLimiter concurrencyLimiter;
+
+    private final @Nullable Executor unaryExecutor;
+    private final long maxRequestBodySize;
+    private final @Nullable TranscodingBatch batch;
 
     private @Nullable Channel channel;
 
@@ -82,21 +120,45 @@ public class DefaultServletTranscoder
             GrpcTranscodingProperties grpcTranscodingProperties,
             GrpcServerProperties grpcServerProperties,
             TranscodingExceptionResolver transcodingExceptionResolver,
-            List<TranscodingCustomizer> transcodingCustomizers) {
+            List<TranscodingCustomizer> transcodingCustomizers,
+            @Nullable Channel directDispatchChannel,
+            TranscodingMetrics transcodingMetrics,
+            @Nullable TranscodingResponseCache responseCache,
+            @Nullable TranscodingRequestCoalescer requestCoalescer,
+            @Nullable TranscodingConcurrencyLimiter concurrencyLimiter) {
         fillRoutes(services, autoMappingRoutes, customRoutes, grpcTranscodingProperties, transcodingCustomizers);
+        this.directDispatchChannel = directDispatchChannel;
         this.headerConverter = headerConverter;
         this.grpcTranscodingProperties = grpcTranscodingProperties;
         this.grpcServerProperties = grpcServerProperties;
         this.transcodingExceptionResolver = transcodingExceptionResolver;
+        this.transcodingMetrics = transcodingMetrics;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.unaryExecutor = grpcTranscodingProperties.getServletUnaryMode() == ServletUnaryMode.VIRTUAL_THREAD
+                ? new VirtualThreadTaskExecutor("grpc-transcoding-")
+                : null;
+        this.maxRequestBodySize = getMaxRequestBodySize(grpcTranscodingProperties, grpcServerProperties);
+        this.batch = grpcTranscodingProperties.getBatch().isEnabled()
+                ? new TranscodingBatch(grpcTranscodingProperties.getBatch(), autoMappingRoutes, customRoutes)
+                : null;
     }
 
     @Override
     public void onApplicationEvent(GrpcServerStartedEvent event) {
-        channel = getTranscodingChannel(event.getSource().getPort(), grpcTranscodingProperties, grpcServerProperties);
+        channel = directDispatchChannel != null
+                ? directDispatchChannel
+                : getTranscodingChannel(event.getSource().getPort(), grpcTranscodingProperties, grpcServerProperties);
     }
 
     @Override
     public Optional<HandlerFunction<ServerResponse>> route(ServerRequest request) {
+        var b = batch;
+        if (b != null && b.matches(request.method(), request.path())) {
+            return Optional.of(r -> processBatch(r, b));
+        }
+
         if (Objects.equals(request.method(), HttpMethod.POST)) {
             var route = autoMappingRoutes.get(trimRight(request.path(), '/'));
             if (route != null) {
@@ -105,21 +167,19 @@ public class DefaultServletTranscoder
             }
         }
 
-        for (var route : customRoutes) {
-            if (route.predicate().test(request)
-                    || route.additionalPredicates().stream().anyMatch(p -> p.test(request))) {
-                request.attributes().put(MATCHING_ROUTE, route);
-                return Optional.of(this);
-            }
+        var match = customRoutes.match(request.method(), request.path());
+        if (match != null) {
+            request.attributes().put(MATCHING_ROUTE, match.route());
+            request.attributes().put(URI_TEMPLATE_VARIABLES_ATTRIBUTE, match.pathVariables());
+            return Optional.of(this);
         }
 
         return Optional.empty();
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public ServerResponse handle(ServerRequest request) {
-        var route = (Util.Route<ServerRequest>) request.attributes().get(MATCHING_ROUTE);
+        var route = (Route) request.attributes().get(MATCHING_ROUTE);
         if (route == null) {
             return ServerResponse.badRequest().build();
         }
@@ -134,76 +194,378 @@ public class DefaultServletTranscoder
             return processServerStreamingCall(request, route);
         }
 
+        if (methodType == CLIENT_STREAMING) {
+            return processClientStreamingCall(request, route);
+        }
+
         throw new ResponseStatusException(BAD_REQUEST, "Unsupported rpc method type: " + methodType);
     }
 
+    private ClientCall<Object, Object> getCall(Route route, ServerRequest request) {
+        return getCall(route, request, headerConverter.toMetadata(request.headers().asHttpHeaders()), null, null);
+    }
+
+    private ClientCall<Object, Object> getCall(
+            Route route,
+            ServerRequest request,
+            AtomicReference<Metadata> responseHeaders,
+            AtomicReference<Metadata> responseTrailers) {
+        var metadata = headerConverter.toMetadata(request.headers().asHttpHeaders());
+        return getCall(route, request, metadata, responseHeaders, responseTrailers);
+    }
+
+    /**
+     * Create the call with the deadline and the concurrency limit of the route, the converted http headers are
+     * attached to the call.
+     */
     @SuppressWarnings("unchecked")
-    private static ClientCall<Object, Object> getCall(Channel channel, Route<ServerRequest> route) {
-        return (ClientCall<Object, Object>) channel.newCall(route.invokeMethod(), CallOptions.DEFAULT);
+    private ClientCall<Object, Object> getCall(
+            Route route,
+            ServerRequest request,
+            Metadata metadata,
+            @Nullable AtomicReference<Metadata> responseHeaders,
+            @Nullable AtomicReference<Metadata> responseTrailers) {
+        var callOptions =
+                getCallOptions(grpcTranscodingProperties.getDeadline(), route, request.headers().asHttpHeaders());
+        var call = HeaderForwardingClientCall.wrap(
+                (ClientCall<Object, Object>) mustGetChannel().newCall(route.invokeMethod(), callOptions),
+                metadata,
+                responseHeaders,
+                responseTrailers);
+        var limiter = concurrencyLimiter;
+        return limiter != null ? limiter.limit(call, route) : call;
     }
 
     @SuppressWarnings("unchecked")
-    private static Transcoder getTranscoder(ServerRequest request) {
+    private Transcoder getTranscoder(ServerRequest request) {
         try {
-            return Transcoder.create(new Transcoder.Variable(
-                    ByteString.copyFrom(copyToByteArray(request.servletRequest().getInputStream())),
-                    request.servletRequest().getParameterMap(),
-                    ((Map<String, String>) request.servletRequest().getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE))));
+            return Transcoder.create(
+                    new Transcoder.Variable(
+                            getBody(request, false),
+                            request.servletRequest().getParameterMap(),
+                            ((Map<String, String>)
+                                    request.servletRequest().getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE))),
+                    isProtobuf(request.headers().contentType().orElse(null)));
         } catch (IOException e) {
             throw new IllegalStateException("getInputStream failed", e);
         }
     }
 
-    private ServerResponse processUnaryCall(ServerRequest request, Route<ServerRequest> route) {
+    /**
+     * Get the request body, fails with 413 when the body exceeds {@link #maxRequestBodySize}.
+     *
+     * @param perLine whether the limit applies to each line (NDJSON) instead of the whole body
+     */
+    private InputStream getBody(ServerRequest request, boolean perLine) throws IOException {
+        if (!perLine && request.servletRequest().getContentLengthLong() > maxRequestBodySize) {
+            throw requestBodyTooLarge(maxRequestBodySize);
+        }
+        return new LimitedInputStream(request.servletRequest().getInputStream(), maxRequestBodySize, perLine);
+    }
+
+    private ServerResponse processUnaryCall(ServerRequest request, Route route) {
         var headers = new AtomicReference<Metadata>();
         var trailers = new AtomicReference<Metadata>();
         var transcoder = getTranscoder(request);
-        var req = getMessage(route, transcoder);
-        var chan = ClientInterceptors.intercept(
-                channel,
-                MetadataUtils.newCaptureMetadataInterceptor(headers, trailers),
-                MetadataUtils.newAttachHeadersInterceptor(
-                        headerConverter.toMetadata(request.headers().asHttpHeaders())));
-        var call = getCall(chan, route);
+        var req = decode(request, route, transcoder);
+
+        var cache = responseCache;
+        var cacheKey = cache != null
+                ? cache.getKey(
+                        request.method(),
+                        route,
+                        req,
+                        request.headers().asHttpHeaders(),
+                        acceptsProtobuf(request.headers().accept()))
+                : null;
+        if (cache != null && cacheKey != null) {
+            var cached = cache.get(cacheKey);
+            if (cached != null) {
+                return toServerResponse(request, cached);
+            }
+        }
+
+        var call = getCall(route, request, headers, trailers);
+        Function<Message, ServerResponse> toResponse = responseMessage ->
+                toServerResponse(request, route, transcoder, headers.get(), responseMessage, cacheKey);
+
+        var coalescer = requestCoalescer;
+        var coalescingKey = coalescer != null
+                ? coalescer.getKey(request.method(), route, req, request.headers().asHttpHeaders())
+                : null;
+        if (coalescer != null && coalescingKey != null) {
+            var result = coalescer.execute(coalescingKey, () -> unaryCall(route, call, req, headers));
+            return ServerResponse.async(result.handle((response, t) -> t == null
+                    ? toServerResponse(request, route, transcoder, response.headers(), response.message(), cacheKey)
+                    : resolve(t)));
+        }
+
+        var executor = unaryExecutor;
+        if (executor != null) {
+            cancelOnAsyncFailure(request, call);
+            return ServerResponse.async(
+                    CompletableFuture.supplyAsync(() -> blockingUnaryCall(route, call, req, toResponse), executor));
+        }
+        if (grpcTranscodingProperties.getServletUnaryMode() == ServletUnaryMode.ASYNC) {
+            cancelOnAsyncFailure(request, call);
+            return ServerResponse.async(asyncUnaryCall(route, call, req, toResponse));
+        }
+        return blockingUnaryCall(route, call, req, toResponse);
+    }
+
+    private Message decode(ServerRequest request, Route route, Transcoder transcoder) {
+        var method = route.invokeMethod().getFullMethodName();
+        long start = System.nanoTime();
+        var builder = parseMessage(route, transcoder);
+        long parsed = System.nanoTime();
+        transcodingMetrics.recordDuration(method, Phase.PARSE, parsed - start);
+        var message = builder.build();
+        transcodingMetrics.recordDuration(method, Phase.BUILD, System.nanoTime() - parsed);
+        long contentLength = request.servletRequest().getContentLengthLong();
+        if (contentLength >= 0) {
+            transcodingMetrics.recordPayloadSize(method, Payload.REQUEST, contentLength);
+        }
+        return message;
+    }
+
+    private ServerResponse blockingUnaryCall(
+            Route route, ClientCall<Object, Object> call, Message req, Function<Message, ServerResponse> toResponse) {
+        long start = System.nanoTime();
         Message responseMessage;
         try {
             responseMessage = (Message) ClientCalls.blockingUnaryCall(call, req);
         } catch (StatusRuntimeException sre) {
+            recordCall(route, start);
             return transcodingExceptionResolver.resolve(sre);
         }
+        recordCall(route, start);
+        return toResponse.apply(responseMessage);
+    }
 
-        var builder = ServerResponse.ok().headers(h -> {
-            Metadata m = headers.get();
-            if (m != null) {
-                h.addAll(headerConverter.toHttpHeaders(m));
+    /**
+     * Cancel the call when the async request fails or times out, e.g. the client disconnects, so the backend stops
+     * working on a response nobody waits for.
+     */
+    private static void cancelOnAsyncFailure(ServerRequest request, ClientCall<?, ?> call) {
+        WebAsyncUtils.getAsyncManager(request.servletRequest())
+                .registerDeferredResultInterceptor(CANCEL_CALL_INTERCEPTOR, new DeferredResultProcessingInterceptor() {
+                    @Override
+                    public <T> boolean handleTimeout(NativeWebRequest req, DeferredResult<T> deferredResult) {
+                        call.cancel("Transcoding request timed out", null);
+                        return true;
+                    }
+
+                    @Override
+                    public <T> boolean handleError(
+                            NativeWebRequest req, DeferredResult<T> deferredResult, Throwable t) {
+                        call.cancel("Transcoding request failed", t);
+                        return true;
+                    }
+                });
+    }
+
+    private void recordCall(Route route, long start) {
+        transcodingMetrics.recordDuration(
+                route.invokeMethod().getFullMethodName(), Phase.CALL, System.nanoTime() - start);
+    }
+
+    /**
+     * Complete the response from the gRPC callback, no servlet thread is held while waiting for the backend.
+     */
+    private CompletableFuture<ServerResponse> asyncUnaryCall(
+            Route route, ClientCall<Object, Object> call, Message req, Function<Message, ServerResponse> toResponse) {
+        var future = new CompletableFuture<ServerResponse>();
+        long start = System.nanoTime();
+        ClientCalls.asyncUnaryCall(call, req, new StreamObserver<>() {
+            @Override
+            public void onNext(Object value) {
+                recordCall(route, start);
+                try {
+                    future.complete(toResponse.apply((Message) value));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                recordCall(route, start);
+                if (t instanceof StatusRuntimeException sre) {
+                    try {
+                        future.complete(transcodingExceptionResolver.resolve(sre));
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                } else {
+                    future.completeExceptionally(t);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                // response is completed in onNext
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Start the call, the result carries the response headers captured by the call.
+     */
+    private CompletableFuture<TranscodingRequestCoalescer.Response> unaryCall(
+            Route route, ClientCall<Object, Object> call, Message req, AtomicReference<Metadata> headers) {
+        var future = new CompletableFuture<TranscodingRequestCoalescer.Response>();
+        long start = System.nanoTime();
+        ClientCalls.asyncUnaryCall(call, req, new StreamObserver<>() {
+            @Override
+            public void onNext(Object value) {
+                recordCall(route, start);
+                future.complete(new TranscodingRequestCoalescer.Response((Message) value, headers.get()));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                recordCall(route, start);
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                // result is completed in onNext
             }
         });
+        return future;
+    }
+
+    private ServerResponse resolve(Throwable t) {
+        var cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof StatusRuntimeException sre) {
+            return transcodingExceptionResolver.resolve(sre);
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new CompletionException(cause);
+    }
+
+    private ServerResponse toServerResponse(
+            ServerRequest request,
+            Route route,
+            Transcoder transcoder,
+            @Nullable Metadata headers,
+            Message responseMessage,
+            @Nullable TranscodingResponseCache.Key cacheKey) {
+        var httpHeaders = headers != null ? headerConverter.toHttpHeaders(headers) : new HttpHeaders();
         var body = transcoder.out(responseMessage, route.httpRule());
-        if (canParseJson(body)) {
-            builder.contentType(MediaType.APPLICATION_JSON);
+        boolean protobuf = body instanceof Message && acceptsProtobuf(request.headers().accept());
+
+        var etag = grpcTranscodingProperties.getEtag();
+        if (etag.isEnabled() && HttpMethod.GET.equals(request.method())) {
+            httpHeaders.setETag(ETagUtil.getETag(headers, etag.getMetadataKey(), responseMessage, protobuf));
+        }
+
+        MediaType contentType;
+        BodyWriter writer;
+        if (protobuf) {
+            contentType = APPLICATION_PROTOBUF;
+            writer = ((Message) body)::writeTo;
+        } else if (body instanceof ByteString bytes && grpcTranscodingProperties.isRawBytesResponseBody()) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM;
+            writer = bytes::writeTo;
+            httpHeaders.setContentLength(bytes.size());
+        } else {
+            contentType = JsonUtil.getContentType(body);
+            writer = os -> JsonUtil.writeJson(body, os);
+        }
+
+        var cache = responseCache;
+        if (cache != null && cacheKey != null) {
+            // Serialize once, the bytes are both cached and written
+            var output = ByteString.newOutput();
+            try {
+                encode(route, output, writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            var cached = new CachedResponse(output.toByteString(), contentType, httpHeaders);
+            cache.put(cacheKey, route, cached);
+            return toServerResponse(request, cached);
+        }
+
+        var notModified = notModified(request, httpHeaders);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(httpHeaders))
+                .contentType(contentType)
+                .build((req, resp) -> {
+                    encode(route, resp.getOutputStream(), writer);
+                    return null;
+                });
+    }
+
+    private static ServerResponse toServerResponse(ServerRequest request, CachedResponse cached) {
+        var notModified = notModified(request, cached.headers());
+        if (notModified != null) {
+            return notModified;
         }
-        return builder.body(JsonUtil.toJson(body));
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(cached.headers()))
+                .contentType(cached.contentType())
+                .build((req, resp) -> {
+                    cached.body().writeTo(resp.getOutputStream());
+                    return null;
+                });
     }
 
-    private ServerResponse processServerStreamingCall(ServerRequest request, Route<ServerRequest> route) {
+    /**
+     * @return 304 response if the {@code If-None-Match} request header matches the ETag, otherwise null
+     */
+    @Nullable
+    private static ServerResponse notModified(ServerRequest request, HttpHeaders responseHeaders) {
+        var etag = responseHeaders.getETag();
+        if (etag == null || !ETagUtil.matches(request.headers().asHttpHeaders().getIfNoneMatch(), etag)) {
+            return null;
+        }
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).headers(h -> h.addAll(responseHeaders)).build();
+    }
+
+    private void encode(Route route, OutputStream outputStream, BodyWriter writer) throws IOException {
+        var method = route.invokeMethod().getFullMethodName();
+        long start = System.nanoTime();
+        var os = new CountingOutputStream(outputStream);
+        writer.write(os);
+        transcodingMetrics.recordDuration(method, Phase.ENCODE, System.nanoTime() - start);
+        transcodingMetrics.recordPayloadSize(method, Payload.RESPONSE, os.getCount());
+    }
+
+    private ServerResponse processServerStreamingCall(ServerRequest request, Route route) {
         var transcoder = getTranscoder(request);
-        var req = getMessage(route, transcoder);
-        // forwards http headers
-        var chan = ClientInterceptors.intercept(
-                channel,
-                MetadataUtils.newAttachHeadersInterceptor(
-                        headerConverter.toMetadata(request.headers().asHttpHeaders())));
-        var call = getCall(chan, route);
+        var req = decode(request, route, transcoder);
+        var bytesField = grpcTranscodingProperties.isRawBytesResponseBody() ? getBytesResponseBodyField(route) : null;
+        if (bytesField != null) {
+            return processBytesStreamingCall(request, route, req, bytesField);
+        }
+        if (acceptsNdjson(request.headers().accept())) {
+            return processNdjsonStreamingCall(request, route, transcoder, req);
+        }
+        var call = getCall(route, request);
         return ServerResponse.sse(
                 sse -> {
                     // Cancel the call when SSE error occurs, possibly due to client disconnect
                     sse.onError(t -> call.cancel("SSE error", null));
+                    sse.onTimeout(() -> call.cancel("SSE timeout", null));
 
                     ClientCalls.asyncServerStreamingCall(call, req, new StreamObserver<>() {
                         @Override
                         @SneakyThrows
                         public void onNext(Object value) {
+                            long start = System.nanoTime();
                             String json = JsonUtil.toJson(transcoder.out((Message) value, route.httpRule()));
+                            transcodingMetrics.recordDuration(
+                                    route.invokeMethod().getFullMethodName(), Phase.ENCODE, System.nanoTime() - start);
                             sse.data(json);
                         }
 
@@ -226,18 +588,276 @@ public class DefaultServletTranscoder
                 Duration.ZERO);
     }
 
-    private static Message getMessage(Route<?> route, Transcoder transcoder) {
+    /**
+     * Write each response message as a line of JSON (NDJSON), flushes are coalesced.
+     *
+     * @see GrpcTranscodingProperties.Ndjson
+     */
+    private ServerResponse processNdjsonStreamingCall(
+            ServerRequest request, Route route, Transcoder transcoder, Message req) {
+        var headers = new AtomicReference<Metadata>();
+        var trailers = new AtomicReference<Metadata>();
+        var call = getCall(route, request, headers, trailers);
+        var responses = BlockingServerStreamingObserver.start(
+                call, req, grpcTranscodingProperties.getServerStreamingPrefetch());
+
+        // Wait for the first message before committing the response, errors before it are resolved as usual
+        Object first;
+        try {
+            first = responses.take();
+        } catch (StatusRuntimeException sre) {
+            return transcodingExceptionResolver.resolve(sre);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            responses.cancel("Interrupted", e);
+            throw new IllegalStateException("Interrupted while waiting for the response", e);
+        }
+
+        var httpHeaders = new HttpHeaders();
+        var m = headers.get();
+        if (m != null) {
+            httpHeaders.addAll(headerConverter.toHttpHeaders(m));
+        }
+
+        var ndjson = grpcTranscodingProperties.getNdjson();
+        int flushMessages = Math.max(ndjson.getFlushMessages(), 1);
+        long flushIntervalNanos = ndjson.getFlushInterval().toNanos();
+        var method = route.invokeMethod().getFullMethodName();
+
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(httpHeaders))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .build((r, resp) -> {
+                    var os = resp.getOutputStream();
+                    try {
+                        var message = first;
+                        int pending = 0;
+                        long firstPendingAt = 0;
+                        while (message != BlockingServerStreamingObserver.END) {
+                            if (message != null) {
+                                long start = System.nanoTime();
+                                var json = JsonUtil.toJson(transcoder.out((Message) message, route.httpRule()));
+                                transcodingMetrics.recordDuration(method, Phase.ENCODE, System.nanoTime() - start);
+                                os.write(json.getBytes(StandardCharsets.UTF_8));
+                                os.write('\n');
+                                if (pending++ == 0) {
+                                    firstPendingAt = System.nanoTime();
+                                }
+                            }
+                            long waitNanos = flushIntervalNanos - (System.nanoTime() - firstPendingAt);
+                            if (pending > 0 && (pending >= flushMessages || waitNanos <= 0)) {
+                                os.flush();
+                                pending = 0;
+                            }
+                            // Nothing written yet, no deadline to flush
+                            message = pending == 0 ? responses.take() : responses.poll(waitNanos);
+                        }
+                        os.flush();
+                    } catch (IOException | RuntimeException e) {
+                        // Client disconnected or the stream failed after the response is committed
+                        responses.cancel("Failed to write response", e);
+                        throw e;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        responses.cancel("Interrupted", e);
+                        throw new IllegalStateException("Interrupted while writing the response", e);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Write the bytes field of each response message to the response as is, no SSE framing.
+     */
+    private ServerResponse processBytesStreamingCall(
+            ServerRequest request, Route route, Message req, Descriptors.FieldDescriptor bytesField) {
+        var headers = new AtomicReference<Metadata>();
+        var trailers = new AtomicReference<Metadata>();
+        var call = getCall(route, request, headers, trailers);
+        var responses = ClientCalls.blockingServerStreamingCall(call, req);
+
+        // Wait for the first message before committing the response, errors before it are resolved as usual
+        try {
+            responses.hasNext();
+        } catch (StatusRuntimeException sre) {
+            return transcodingExceptionResolver.resolve(sre);
+        }
+
+        var httpHeaders = new HttpHeaders();
+        var m = headers.get();
+        if (m != null) {
+            var contentLengthKey = grpcTranscodingProperties.getRawBytesContentLengthKey();
+            httpHeaders.addAll(headerConverter.toHttpHeaders(m));
+            httpHeaders.remove(contentLengthKey);
+            var contentLength = getContentLength(m, contentLengthKey);
+            if (contentLength != null) {
+                httpHeaders.setContentLength(contentLength);
+            }
+        }
+
+        return ServerResponse.ok()
+                .headers(h -> h.addAll(httpHeaders))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .build((r, resp) -> {
+                    var os = resp.getOutputStream();
+                    try {
+                        while (responses.hasNext()) {
+                            var chunk = (ByteString) ((Message) responses.next()).getField(bytesField);
+                            chunk.writeTo(os);
+                            os.flush();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Client disconnected or the stream failed after the response is committed
+                        call.cancel("Failed to write response", e);
+                        throw e;
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Execute the items of the batch request concurrently, no servlet thread is held while waiting for the backend.
+     *
+     * @see TranscodingBatch
+     */
+    private ServerResponse processBatch(ServerRequest request, TranscodingBatch batch) throws IOException {
+        var items = batch.parse(getBody(request, false));
+        // converted once, shared by the calls of the items
+        var metadata = headerConverter.toMetadata(request.headers().asHttpHeaders());
+        var result = batch.execute(items, r -> {
+                    long start = System.nanoTime();
+                    return TranscodingBatch.unaryCall(getCall(r.route(), request, metadata, null, null), r.message())
+                            .whenComplete((m, e) -> recordCall(r.route(), start));
+                })
+                .thenApply(outcomes -> {
+                    var results = outcomes.stream()
+                            .map(o -> {
+                                var error = o.error();
+                                return error != null ? toBatchResult(error) : TranscodingBatch.Result.ok(o);
+                            })
+                            .toList();
+                    return ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(TranscodingBatch.toJson(results));
+                });
+        return ServerResponse.async(result);
+    }
+
+    /**
+     * Map the failure of a batch item by the {@link TranscodingExceptionResolver}, the body of the resolved response is
+     * kept if it is an {@link EntityResponse}.
+     */
+    private TranscodingBatch.Result toBatchResult(Throwable error) {
+        var cause = error;
+        if (cause instanceof StatusRuntimeException sre) {
+            try {
+                var response = transcodingExceptionResolver.resolve(sre);
+                var body = response instanceof EntityResponse<?> entity ? entity.entity() : null;
+                return new TranscodingBatch.Result(response.statusCode().value(), body, sre.getMessage());
+            } catch (ResponseStatusException e) {
+                cause = e;
+            }
+        }
+        if (cause instanceof ResponseStatusException rse) {
+            return new TranscodingBatch.Result(rse.getStatusCode().value(), null, rse.getReason());
+        }
+        return new TranscodingBatch.Result(HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null);
+    }
+
+    /**
+     * Each line of the request body is a request message in JSON (NDJSON), lines are read and sent one by one under
+     * the flow control of the call, the request body is never buffered as a whole.
+     */
+    private ServerResponse processClientStreamingCall(ServerRequest request, Route route) {
+        var headers = new AtomicReference<Metadata>();
+        var trailers = new AtomicReference<Metadata>();
+        var call = getCall(route, request, headers, trailers);
+
+        long start = System.nanoTime();
+        var observer = BlockingClientStreamingObserver.start(call);
+        try (var reader = new BufferedReader(new InputStreamReader(getBody(request, true), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!observer.send(decodeLine(request, route, line))) {
+                    break; // call already completed, e.g. failed
+                }
+            }
+            observer.complete();
+        } catch (LimitedInputStream.LimitExceededException e) {
+            observer.cancel("Request body too large", e);
+            throw requestBodyTooLarge(e.getLimit());
+        } catch (IOException e) {
+            observer.cancel("Failed to read request body", e);
+            throw new IllegalStateException("Failed to read request body", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            observer.cancel("Interrupted", e);
+            throw new IllegalStateException("Interrupted while sending request messages", e);
+        } catch (RuntimeException e) {
+            observer.cancel("Invalid request message", e);
+            throw e;
+        }
+
+        Message responseMessage;
+        try {
+            responseMessage = (Message) observer.response().join();
+        } catch (CompletionException e) {
+            recordCall(route, start);
+            return resolve(e);
+        }
+        recordCall(route, start);
+
+        // The transcoder is only used to extract the response body
+        var transcoder = Transcoder.create(new Transcoder.Variable(ByteString.EMPTY, null, null));
+        return toServerResponse(request, route, transcoder, headers.get(), responseMessage, null);
+    }
+
+    /**
+     * Build the request message from a line of the NDJSON request body, the query parameters and path variables are
+     * applied to every message.
+     */
+    @SuppressWarnings("unchecked")
+    private static Message decodeLine(ServerRequest request, Route route, String line) {
+        var transcoder = Transcoder.create(new Transcoder.Variable(
+                ByteString.copyFromUtf8(line),
+                request.servletRequest().getParameterMap(),
+                (Map<String, String>) request.servletRequest().getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE)));
+        return parseMessage(route, transcoder).build();
+    }
+
+    private static Message.Builder parseMessage(Route route, Transcoder transcoder) {
         try {
-            return buildRequestMessage(transcoder, route);
+            return parseRequestMessage(transcoder, route);
+        } catch (LimitedInputStream.LimitExceededException e) {
+            throw requestBodyTooLarge(e.getLimit());
         } catch (InvalidProtocolBufferException e) {
             throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read request body", e);
         }
     }
 
+    private Channel mustGetChannel() {
+        var chan = channel;
+        if (chan == null) {
+            throw new IllegalStateException("Channel not initialized");
+        }
+        return chan;
+    }
+
     @Override
     public void destroy() throws Exception {
-        if (channel != null) {
+        // the direct dispatch channel is shared, closed by the application context
+        if (channel != null && channel != directDispatchChannel) {
             shutdown(channel, Duration.ofSeconds(15));
         }
     }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(OutputStream os) throws IOException;
+    }
 }
@@ -0,0 +1,135 @@
+package grpcstarter.extensions.transcoding;
+
+import static grpcstarter.extensions.transcoding.TranscodingUtil.toHttpStatus;
+
+import io.grpc.ClientCall;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Bridges a gRPC server-streaming or bidi-streaming call into a {@link Flux}, response messages are requested from
+ * gRPC only when the subscriber requests more.
+ *
+ * <p> Automatic inbound flow control is disabled, so gRPC flow control pushes back to the backend when the
+ * subscriber is slow. Demand forwarded to gRPC is bounded by the prefetch, so a slow subscriber holds at most
+ * {@code prefetch} messages instead of the whole stream.
+ *
+ * @param <T> type of the emitted elements
+ * @author Freeman
+ * @see GrpcTranscodingProperties#getServerStreamingPrefetch()
+ */
+final class DemandDrivenResponseObserver<T> implements ClientResponseObserver<Object, Object> {
+
+    private final FluxSink<T> sink;
+    private final Function<Object, T> mapper;
+
+    private final @Nullable FlowControlledRequestSubscriber requestSubscriber;
+
+    private @Nullable ClientCallStreamObserver<Object> requestStream;
+
+    private DemandDrivenResponseObserver(
+            FluxSink<T> sink, Function<Object, T> mapper, @Nullable FlowControlledRequestSubscriber requestSubscriber) {
+        this.sink = sink;
+        this.mapper = mapper;
+        this.requestSubscriber = requestSubscriber;
+    }
+
+    /**
+     * Start the server-streaming call when subscribed.
+     *
+     * @param call     client call
+     * @param request  request message
+     * @param prefetch max number of response messages requested from gRPC ahead of the subscriber, must be positive
+     * @param mapper   mapper of the response messages
+     * @param <T>      type of the emitted elements
+     * @return flux of the mapped response messages
+     */
+    static <T> Flux<T> asFlux(
+            ClientCall<Object, Object> call, Object request, int prefetch, Function<Object, T> mapper) {
+        return Flux.<T>create(sink -> {
+                    var observer = new DemandDrivenResponseObserver<>(sink, mapper, null);
+                    ClientCalls.asyncServerStreamingCall(call, request, observer);
+
+                    // The call is started, it's safe to request messages from now on.
+                    var stream = observer.requestStream;
+                    if (stream != null) {
+                        sink.onRequest(n -> stream.request((int) Math.min(n, Integer.MAX_VALUE)));
+                        sink.onCancel(() -> stream.cancel("Transcoding client cancelled", null));
+                    }
+                })
+                // Bounds the demand of each request(n), unbounded subscribers are served in chunks of prefetch.
+                .limitRate(prefetch);
+    }
+
+    /**
+     * Start the bidi-streaming call when subscribed, request messages are sent under the flow control of the call.
+     *
+     * @param call     client call
+     * @param requests request messages
+     * @param prefetch max number of response messages requested from gRPC ahead of the subscriber, must be positive
+     * @param mapper   mapper of the response messages
+     * @param <T>      type of the emitted elements
+     * @return flux of the mapped response messages
+     * @see FlowControlledRequestSubscriber
+     */
+    static <T> Flux<T> asBidiFlux(
+            ClientCall<Object, Object> call, Publisher<?> requests, int prefetch, Function<Object, T> mapper) {
+        return Flux.<T>create(sink -> {
+                    var requestSubscriber = new FlowControlledRequestSubscriber();
+                    var observer = new DemandDrivenResponseObserver<>(sink, mapper, requestSubscriber);
+                    ClientCalls.asyncBidiStreamingCall(call, observer);
+
+                    var stream = observer.requestStream;
+                    if (stream != null) {
+                        sink.onRequest(n -> stream.request((int) Math.min(n, Integer.MAX_VALUE)));
+                        sink.onCancel(() -> {
+                            requestSubscriber.dispose();
+                            stream.cancel("Transcoding client cancelled", null);
+                        });
+                    }
+                    requests.subscribe(requestSubscriber);
+                })
+                .limitRate(prefetch);
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+        requestStream.disableAutoRequestWithInitial(0);
+        this.requestStream = requestStream;
+        if (requestSubscriber != null) {
+            requestSubscriber.bind(requestStream);
+        }
+    }
+
+    @Override
+    public void onNext(Object value) {
+        sink.next(mapper.apply(value));
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (requestSubscriber != null) {
+            requestSubscriber.dispose();
+        }
+        if (throwable instanceof StatusRuntimeException sre) {
+            sink.error(new TranscodingRuntimeException(toHttpStatus(sre.getStatus()), sre.getMessage(), null));
+        } else {
+            sink.error(throwable);
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        if (requestSubscriber != null) {
+            requestSubscriber.dispose();
+        }
+        sink.complete();
+    }
+}
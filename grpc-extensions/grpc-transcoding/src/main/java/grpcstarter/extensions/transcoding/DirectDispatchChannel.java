@@ -0,0 +1,163 @@
+package grpcstarter.extensions.transcoding;
+
+import grpcstarter.server.DefaultGrpcServer;
+import grpcstarter.server.GrpcServerCustomizer;
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.BindableService;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * {@link ManagedChannel} that dispatches transcoded calls to the gRPC services in the same JVM.
+ *
+ * <p> Calls go through a dedicated in-process {@link Server} configured like the gRPC server: the same
+ * {@link BindableService}s, {@link ServerInterceptor} chain, inbound size limits and {@link GrpcServerCustomizer}s
+ * (e.g. the virtual thread executor). The in-process transport hands the protobuf
+ * {@link com.google.protobuf.Message} objects over by reference, so there is no serialization and no network hop.
+ *
+ * <p> One channel is shared by direct dispatch transcoding and gRPC-Web, see {@link Provider}.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties#isDirectDispatch()
+ */
+final class DirectDispatchChannel extends ManagedChannel {
+
+    private final Server server;
+    private final ManagedChannel delegate;
+
+    private DirectDispatchChannel(Server server, ManagedChannel delegate) {
+        this.server = server;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Start an in-process server configured like the gRPC server and create a channel to it.
+     *
+     * @param properties   gRPC server properties
+     * @param services     services to dispatch to
+     * @param interceptors server interceptors, same order as the gRPC server
+     * @param customizers  server customizers, same order as the gRPC server
+     * @return direct dispatch channel
+     * @see DefaultGrpcServer#configureServerBuilder
+     */
+    static DirectDispatchChannel create(
+            GrpcServerProperties properties,
+            List<BindableService> services,
+            List<ServerInterceptor> interceptors,
+            List<GrpcServerCustomizer> customizers) {
+        String name = "grpc-transcoding-" + UUID.randomUUID();
+
+        var serverBuilder = DefaultGrpcServer.configureServerBuilder(
+                InProcessServerBuilder.forName(name), properties, services, interceptors, customizers);
+
+        Server server;
+        try {
+            server = serverBuilder.build().start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start direct dispatch server", e);
+        }
+
+        return new DirectDispatchChannel(server, InProcessChannelBuilder.forName(name).directExecutor().build());
+    }
+
+    @Override
+    public <I, O> ClientCall<I, O> newCall(MethodDescriptor<I, O> methodDescriptor, CallOptions callOptions) {
+        return delegate.newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return delegate.authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        delegate.shutdown();
+        server.shutdown();
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated() && server.isTerminated();
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        delegate.shutdownNow();
+        server.shutdownNow();
+        return this;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!delegate.awaitTermination(timeout, unit)) {
+            return false;
+        }
+        return server.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates the shared {@link DirectDispatchChannel} on first use and shuts it down with the application context.
+     *
+     * <p> Not a {@link ManagedChannel} bean on purpose, it must not be a candidate for injecting channels by type.
+     */
+    static final class Provider implements DisposableBean {
+
+        private final GrpcServerProperties properties;
+        private final List<BindableService> services;
+        private final List<ServerInterceptor> interceptors;
+        private final List<GrpcServerCustomizer> customizers;
+
+        private @Nullable DirectDispatchChannel channel;
+
+        Provider(
+                GrpcServerProperties properties,
+                List<BindableService> services,
+                List<ServerInterceptor> interceptors,
+                List<GrpcServerCustomizer> customizers) {
+            this.properties = properties;
+            this.services = services;
+            this.interceptors = interceptors;
+            this.customizers = customizers;
+        }
+
+        /**
+         * @return the shared channel, the in-process server is started on the first call
+         */
+        synchronized DirectDispatchChannel getChannel() {
+            var chan = channel;
+            if (chan == null) {
+                chan = create(properties, services, interceptors, customizers);
+                channel = chan;
+            }
+            return chan;
+        }
+
+        @Override
+        public synchronized void destroy() {
+            if (channel != null) {
+                Util.shutdown(channel, Duration.ofSeconds(15));
+            }
+        }
+    }
+}
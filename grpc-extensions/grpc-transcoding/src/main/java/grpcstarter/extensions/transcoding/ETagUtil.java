@@ -0,0 +1,149 @@
+package grpcstarter.extensions.transcoding;
+
+import com.google.protobuf.Message;
+import io.grpc.Metadata;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.List;
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * ETag support for transcoded responses.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.Etag
+ */
+@UtilityClass
+class ETagUtil {
+
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Get the ETag of the response.
+     *
+     * <p> Use the ETag supplied by the backend if present, otherwise compute a strong ETag from the hash of the
+     * deterministic serialization of the response message. JSON and binary protobuf representations of the same
+     * message get different ETags.
+     *
+     * @param headers         response headers from the backend
+     * @param metadataKey     metadata key that carries the backend ETag, null if not configured
+     * @param responseMessage response message
+     * @param protobuf        whether the response body is binary protobuf
+     * @return quoted ETag
+     */
+    static String getETag(
+            @Nullable Metadata headers, @Nullable String metadataKey, Message responseMessage, boolean protobuf) {
+        if (headers != null && StringUtils.hasText(metadataKey)) {
+            var etag = headers.get(Metadata.Key.of(metadataKey, Metadata.ASCII_STRING_MARSHALLER));
+            if (StringUtils.hasText(etag)) {
+                return quote(etag);
+            }
+        }
+        long hash = xxHash64(Util.toDeterministicBytes(responseMessage), protobuf ? 1 : 0);
+        return "\"" + String.format("%016x", hash) + "\"";
+    }
+
+    /**
+     * Check if any of the {@code If-None-Match} entity tags matches the ETag, uses the weak comparison.
+     *
+     * @param ifNoneMatch entity tags of the {@code If-None-Match} request header
+     * @param etag        quoted ETag of the response
+     * @return true if not modified
+     */
+    static boolean matches(List<String> ifNoneMatch, String etag) {
+        var opaqueTag = stripWeak(etag);
+        for (var tag : ifNoneMatch) {
+            if ("*".equals(tag) || opaqueTag.equals(stripWeak(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String quote(String etag) {
+        if (etag.startsWith("\"") || etag.startsWith("W/\"")) {
+            return etag;
+        }
+        return "\"" + etag + "\"";
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">XXH64</a>.
+     */
+    static long xxHash64(byte[] bytes, long seed) {
+        int length = bytes.length;
+        int i = 0;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+            do {
+                v1 = round(v1, (long) LONG_LE.get(bytes, i));
+                v2 = round(v2, (long) LONG_LE.get(bytes, i + 8));
+                v3 = round(v3, (long) LONG_LE.get(bytes, i + 16));
+                v4 = round(v4, (long) LONG_LE.get(bytes, i + 24));
+                i += 32;
+            } while (i <= length - 32);
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + PRIME64_5;
+        }
+
+        h += length;
+
+        while (i <= length - 8) {
+            h ^= round(0, (long) LONG_LE.get(bytes, i));
+            h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+            i += 8;
+        }
+        if (i <= length - 4) {
+            h ^= ((int) INT_LE.get(bytes, i) & 0xFFFFFFFFL) * PRIME64_1;
+            h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+            i += 4;
+        }
+        while (i < length) {
+            h ^= (bytes[i] & 0xFFL) * PRIME64_5;
+            h = Long.rotateLeft(h, 11) * PRIME64_1;
+            i++;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+}
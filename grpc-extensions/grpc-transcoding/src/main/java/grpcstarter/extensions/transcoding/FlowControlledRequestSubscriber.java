@@ -0,0 +1,121 @@
+package grpcstarter.extensions.transcoding;
+
+import io.grpc.ClientCall;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends the request messages of a client-streaming or bidi-streaming call from a {@link Publisher}, under the flow
+ * control of the call.
+ *
+ * <p> One message is requested from the publisher at a time, and only when the call is ready, so a fast HTTP client
+ * is pushed back by gRPC flow control instead of buffering the whole request stream in memory.
+ *
+ * @author Freeman
+ */
+final class FlowControlledRequestSubscriber extends BaseSubscriber<Object> {
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    private volatile @Nullable ClientCallStreamObserver<Object> requestStream;
+
+    /**
+     * Start the client-streaming call when subscribed.
+     *
+     * @param call     client call
+     * @param requests request messages
+     * @return the response message
+     */
+    static Mono<Object> clientStreamingCall(ClientCall<Object, Object> call, Publisher<?> requests) {
+        return Mono.create(sink -> {
+            var subscriber = new FlowControlledRequestSubscriber();
+            ClientCalls.asyncClientStreamingCall(call, new ClientResponseObserver<Object, Object>() {
+                @Override
+                public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+                    subscriber.bind(requestStream);
+                }
+
+                @Override
+                public void onNext(Object value) {
+                    sink.success(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    subscriber.dispose();
+                    sink.error(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    sink.success();
+                }
+            });
+            sink.onCancel(() -> {
+                subscriber.dispose();
+                call.cancel("Transcoding client cancelled", null);
+            });
+            requests.subscribe(subscriber);
+        });
+    }
+
+    /**
+     * Bind the request stream of the call, must be called in {@link ClientResponseObserver#beforeStart}.
+     *
+     * @param requestStream request stream of the call
+     */
+    void bind(ClientCallStreamObserver<Object> requestStream) {
+        this.requestStream = requestStream;
+        requestStream.setOnReadyHandler(this::requestIfReady);
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        requestIfReady();
+    }
+
+    @Override
+    protected void hookOnNext(Object value) {
+        var stream = requestStream;
+        if (stream != null) {
+            stream.onNext(value);
+        }
+        requested.set(false);
+        requestIfReady();
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        var stream = requestStream;
+        if (stream != null) {
+            stream.onCompleted();
+        }
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+        // Cancels the call, the cause is kept in the status of the call
+        var stream = requestStream;
+        if (stream != null) {
+            stream.onError(throwable);
+        }
+    }
+
+    private void requestIfReady() {
+        var stream = requestStream;
+        if (stream != null
+                && upstream() != null
+                && !isDisposed()
+                && stream.isReady()
+                && requested.compareAndSet(false, true)) {
+            request(1);
+        }
+    }
+}
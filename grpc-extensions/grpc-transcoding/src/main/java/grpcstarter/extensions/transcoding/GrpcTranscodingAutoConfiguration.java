@@ -5,18 +5,27 @@ import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebA
 
 import com.google.protobuf.util.JsonFormat;
 import grpcstarter.server.ConditionOnGrpcServerEnabled;
+import grpcstarter.server.GrpcServerCustomizer;
 import grpcstarter.server.GrpcServerProperties;
 import io.grpc.BindableService;
 import io.grpc.Metadata;
+import io.grpc.ServerInterceptor;
+import io.grpc.servlet.jakarta.ServletAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
 
@@ -26,6 +35,8 @@ import org.springframework.http.HttpHeaders;
  * @author Freeman
  */
 @Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter(
+        name = "org.springframework.boot.micrometer.metrics.autoconfigure.CompositeMeterRegistryAutoConfiguration")
 @ConditionalOnClass({Metadata.class, HttpHeaders.class, GrpcServerProperties.class})
 @ConditionOnGrpcServerEnabled
 @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "enabled", matchIfMissing = true)
@@ -65,6 +76,19 @@ public class GrpcTranscodingAutoConfiguration implements SmartInitializingSingle
         return new DefaultHeaderConverter();
     }
 
+    /**
+     * In-process channel shared by direct dispatch and gRPC-Web, the in-process server is only started when used.
+     */
+    @Bean
+    public DirectDispatchChannel.Provider grpcTranscodingDirectDispatchChannelProvider(
+            GrpcServerProperties grpcServerProperties,
+            List<BindableService> services,
+            List<ServerInterceptor> serverInterceptors,
+            List<GrpcServerCustomizer> serverCustomizers) {
+        return new DirectDispatchChannel.Provider(
+                grpcServerProperties, services, serverInterceptors, serverCustomizers);
+    }
+
     @Configuration(proxyBeanMethods = false)
     @ConditionalOnWebApplication(type = SERVLET)
     static class WebMvc {
@@ -84,14 +108,24 @@ public class GrpcTranscodingAutoConfiguration implements SmartInitializingSingle
                 GrpcTranscodingProperties grpcTranscodingProperties,
                 GrpcServerProperties grpcServerProperties,
                 TranscodingExceptionResolver transcodingExceptionResolver,
-                List<TranscodingCustomizer> transcodingCustomizers) {
+                List<TranscodingCustomizer> transcodingCustomizers,
+                DirectDispatchChannel.Provider directDispatchChannelProvider,
+                ObjectProvider<TranscodingMetrics> transcodingMetrics,
+                ObjectProvider<TranscodingResponseCache> responseCache,
+                ObjectProvider<TranscodingRequestCoalescer> requestCoalescer,
+                ObjectProvider<TranscodingConcurrencyLimiter> concurrencyLimiter) {
             return new DefaultServletTranscoder(
                     services,
                     headerConverter,
                     grpcTranscodingProperties,
                     grpcServerProperties,
                     transcodingExceptionResolver,
-                    transcodingCustomizers);
+                    transcodingCustomizers,
+                    grpcTranscodingProperties.isDirectDispatch() ? directDispatchChannelProvider.getChannel() : null,
+                    transcodingMetrics.getIfAvailable(() -> TranscodingMetrics.NOOP),
+                    responseCache.getIfAvailable(),
+                    requestCoalescer.getIfAvailable(),
+                    concurrencyLimiter.getIfAvailable());
         }
     }
 
@@ -114,14 +148,151 @@ public class GrpcTranscodingAutoConfiguration implements SmartInitializingSingle
                 GrpcTranscodingProperties grpcTranscodingProperties,
                 GrpcServerProperties grpcServerProperties,
                 ReactiveTranscodingExceptionResolver transcodingExceptionResolver,
-                List<TranscodingCustomizer> transcodingCustomizers) {
+                List<TranscodingCustomizer> transcodingCustomizers,
+                DirectDispatchChannel.Provider directDispatchChannelProvider,
+                ObjectProvider<TranscodingMetrics> transcodingMetrics,
+                ObjectProvider<TranscodingResponseCache> responseCache,
+                ObjectProvider<TranscodingRequestCoalescer> requestCoalescer,
+                ObjectProvider<TranscodingConcurrencyLimiter> concurrencyLimiter) {
             return new DefaultReactiveTranscoder(
                     services,
                     headerConverter,
                     grpcTranscodingProperties,
                     grpcServerProperties,
                     transcodingExceptionResolver,
-                    transcodingCustomizers);
+                    transcodingCustomizers,
+                    grpcTranscodingProperties.isDirectDispatch() ? directDispatchChannelProvider.getChannel() : null,
+                    transcodingMetrics.getIfAvailable(() -> TranscodingMetrics.NOOP),
+                    responseCache.getIfAvailable(),
+                    requestCoalescer.getIfAvailable(),
+                    concurrencyLimiter.getIfAvailable());
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "metrics.enabled")
+    static class Metrics {
+
+        @Bean
+        @ConditionalOnMissingBean(TranscodingMetrics.class)
+        public MicrometerTranscodingMetrics grpcTranscodingMicrometerMetrics(MeterRegistry meterRegistry) {
+            return new MicrometerTranscodingMetrics(meterRegistry);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "response-cache.enabled")
+    static class ResponseCache {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public TranscodingResponseCache grpcTranscodingResponseCache(GrpcTranscodingProperties properties) {
+            return new TranscodingResponseCache(properties.getResponseCache());
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(MeterRegistry.class)
+        static class Metrics {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public TranscodingResponseCacheMeterBinder grpcTranscodingResponseCacheMeterBinder(
+                    TranscodingResponseCache responseCache) {
+                return new TranscodingResponseCacheMeterBinder(responseCache);
+            }
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "request-coalescing.enabled")
+    static class RequestCoalescing {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public TranscodingRequestCoalescer grpcTranscodingRequestCoalescer(
+                GrpcTranscodingProperties properties, HeaderConverter headerConverter) {
+            return new TranscodingRequestCoalescer(properties.getRequestCoalescing(), headerConverter);
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(MeterRegistry.class)
+        static class Metrics {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public TranscodingRequestCoalescerMeterBinder grpcTranscodingRequestCoalescerMeterBinder(
+                    TranscodingRequestCoalescer requestCoalescer) {
+                return new TranscodingRequestCoalescerMeterBinder(requestCoalescer);
+            }
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "concurrency-limit.enabled")
+    static class ConcurrencyLimit {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public TranscodingConcurrencyLimiter grpcTranscodingConcurrencyLimiter(GrpcTranscodingProperties properties) {
+            return new TranscodingConcurrencyLimiter(properties.getConcurrencyLimit());
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(MeterRegistry.class)
+        static class Metrics {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public TranscodingConcurrencyLimiterMeterBinder grpcTranscodingConcurrencyLimiterMeterBinder(
+                    TranscodingConcurrencyLimiter concurrencyLimiter) {
+                return new TranscodingConcurrencyLimiterMeterBinder(concurrencyLimiter);
+            }
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = SERVLET)
+    @ConditionalOnClass(ServletAdapter.class)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "shared-port.enabled")
+    static class SharedPort {
+
+        @Bean
+        public FilterRegistrationBean<SharedPortGrpcFilter> grpcTranscodingSharedPortGrpcFilter(
+                List<BindableService> services,
+                List<ServerInterceptor> serverInterceptors,
+                List<GrpcServerCustomizer> serverCustomizers,
+                GrpcServerProperties grpcServerProperties) {
+            var registration = new FilterRegistrationBean<>(new SharedPortGrpcFilter(
+                    services, serverInterceptors, serverCustomizers, grpcServerProperties));
+            // gRPC calls don't go through the web filters, after the gRPC-Web filter
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+            registration.setAsyncSupported(true);
+            return registration;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = SERVLET)
+    @ConditionalOnProperty(prefix = GrpcTranscodingProperties.PREFIX, name = "grpc-web.enabled")
+    static class GrpcWeb {
+
+        @Bean
+        public FilterRegistrationBean<GrpcWebFilter> grpcTranscodingGrpcWebFilter(
+                List<BindableService> services,
+                DirectDispatchChannel.Provider directDispatchChannelProvider,
+                HeaderConverter headerConverter,
+                GrpcTranscodingProperties grpcTranscodingProperties,
+                GrpcServerProperties grpcServerProperties) {
+            var registration = new FilterRegistrationBean<>(new GrpcWebFilter(
+                    services,
+                    directDispatchChannelProvider.getChannel(),
+                    headerConverter,
+                    grpcTranscodingProperties,
+                    grpcServerProperties));
+            registration.setOrder(grpcTranscodingProperties.getGrpcWeb().getOrder());
+            return registration;
         }
     }
 
@@ -1,8 +1,16 @@
 package grpcstarter.extensions.transcoding;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties for gRPC transcoding.
@@ -26,6 +34,39 @@ public class GrpcTranscodingProperties {
      */
     private @Nullable String endpoint;
 
+    /**
+     * Whether to dispatch transcoded calls to the gRPC services in the same JVM, default false.
+     *
+     * <p> When enabled, transcoded calls don't go through the gRPC server port, they are dispatched to a dedicated
+     * in-process server configured like the gRPC server: the same services, {@link io.grpc.ServerInterceptor}s,
+     * inbound size limits and {@link grpcstarter.server.GrpcServerCustomizer}s.
+     * Protobuf messages are passed by reference, no serialization and no network round trip.
+     *
+     * <p> {@link #endpoint} is ignored when enabled.
+     *
+     * @since 4.1.0
+     */
+    private boolean directDispatch = false;
+
+    /**
+     * Max number of server-streaming response messages requested from the gRPC server ahead of the HTTP client,
+     * default 16, must be positive.
+     *
+     * <p> Used by WebFlux streaming responses, servlet NDJSON responses and {@link GrpcWebFilter}. Response messages
+     * are requested on demand of the HTTP client, a slow client holds at most this many messages and gRPC flow
+     * control pushes back to the backend.
+     *
+     * @since 4.1.0
+     */
+    private int serverStreamingPrefetch = 16;
+
+    /**
+     * How to invoke unary calls for WebMvc, default {@link ServletUnaryMode#BLOCKING}.
+     *
+     * @since 4.1.0
+     */
+    private ServletUnaryMode servletUnaryMode = ServletUnaryMode.BLOCKING;
+
     /**
      * Whether to route methods without the `google.api.http` option, default true.
      *
@@ -48,11 +89,132 @@ public class GrpcTranscodingProperties {
      */
     private boolean autoMapping = true;
 
+    /**
+     * Whether to write {@code bytes} response bodies as raw {@code application/octet-stream}, default false.
+     *
+     * <p> Applies to routes whose {@code response_body} is a singular {@code bytes} field. Unary responses are written
+     * as is instead of a base64 JSON string. Server streaming responses are written chunk by chunk, the
+     * {@code Content-Length} is taken from the {@link #rawBytesContentLengthKey} response metadata if present.
+     *
+     * <p> Range requests are not supported, the whole body is always returned.
+     *
+     * @since 4.1.0
+     */
+    private boolean rawBytesResponseBody = false;
+
+    /**
+     * Response metadata key holding the total length of a raw bytes streaming response, default
+     * {@code x-content-length}.
+     *
+     * <p> The reserved {@code content-length} key can't be used, gRPC drops it from the response headers. The key is
+     * not forwarded as a response header, a missing or invalid value means chunked encoding.
+     *
+     * @see #rawBytesResponseBody
+     * @since 4.1.0
+     */
+    private String rawBytesContentLengthKey = "x-content-length";
+
+    /**
+     * Max size of the HTTP request body, default {@code grpc.server.max-inbound-message-size} (4MB if not set).
+     *
+     * <p> Enforced while the body is read, requests with a larger {@code Content-Length} or body are rejected with
+     * 413 before the whole body is buffered. For client streaming, the limit applies to each line (request message).
+     *
+     * @since 4.1.0
+     */
+    @Nullable
+    private DataSize maxRequestBodySize;
+
     /**
      * Print options.
      */
     private PrintOptions printOptions = new PrintOptions();
 
+    /**
+     * Metrics options.
+     *
+     * @since 4.1.0
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * Response cache options.
+     *
+     * @since 4.1.0
+     */
+    private ResponseCache responseCache = new ResponseCache();
+
+    /**
+     * ETag options.
+     *
+     * @since 4.1.0
+     */
+    private Etag etag = new Etag();
+
+    /**
+     * Request coalescing options.
+     *
+     * @since 4.1.0
+     */
+    private RequestCoalescing requestCoalescing = new RequestCoalescing();
+
+    /**
+     * NDJSON streaming options.
+     *
+     * @since 4.1.0
+     */
+    private Ndjson ndjson = new Ndjson();
+
+    /**
+     * Batch endpoint options.
+     *
+     * @since 4.1.0
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * Deadline options of the transcoded gRPC calls.
+     *
+     * @since 4.1.0
+     */
+    private Deadline deadline = new Deadline();
+
+    /**
+     * Concurrency limit options of the transcoded gRPC calls.
+     *
+     * @since 4.1.0
+     */
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    /**
+     * Shared port config.
+     *
+     * @since 4.1.0
+     */
+    private SharedPort sharedPort = new SharedPort();
+
+    /**
+     * gRPC-Web config.
+     *
+     * @since 4.1.0
+     */
+    private GrpcWeb grpcWeb = new GrpcWeb();
+
+    public enum ServletUnaryMode {
+        /**
+         * Block the servlet thread until the gRPC call completes.
+         */
+        BLOCKING,
+        /**
+         * Release the servlet thread, complete the response from the gRPC callback using async servlet.
+         */
+        ASYNC,
+        /**
+         * Run the blocking gRPC call on a virtual thread using async servlet, requires Java 21+.
+         */
+        VIRTUAL_THREAD
+    }
+
     /**
      * Options for printing JSON output.
      *
@@ -71,4 +233,309 @@ public class GrpcTranscodingProperties {
          */
         private boolean alwaysPrintEnumsAsInts = false;
     }
+
+    @Data
+    public static class Metrics {
+        /**
+         * Whether to record per-phase transcoding metrics, default false.
+         *
+         * <p> Only works when Micrometer {@code MeterRegistry} is available.
+         *
+         * @see MicrometerTranscodingMetrics
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class ResponseCache {
+        /**
+         * Whether to cache the responses of GET unary routes, default false.
+         *
+         * <p> The cache is shared by all clients, add the headers that responses depend on
+         * (e.g. {@code Authorization}) to {@link #keyHeaders}.
+         *
+         * @see TranscodingResponseCache
+         */
+        private boolean enabled = false;
+
+        /**
+         * Max number of cached responses, the least recently used response is evicted when exceeded, default 10000.
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * Time to live of cached responses, default 60s.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * Time to live per route, gRPC full method name -> TTL.
+         *
+         * <p> If not empty, only responses of these routes are cached.
+         *
+         * <p> Example: {@code grpc.transcoding.response-cache.routes[bookstore.Bookstore/GetShelf]=30s}
+         */
+        private Map<String, Duration> routes = new LinkedHashMap<>();
+
+        /**
+         * Request headers that are part of the cache key, default {@code Authorization}.
+         */
+        private List<String> keyHeaders = new ArrayList<>(List.of(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Data
+    public static class Etag {
+        /**
+         * Whether to add a strong {@code ETag} to the responses of GET unary routes and return 304 (Not Modified)
+         * when the {@code If-None-Match} request header matches, default false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Response metadata key that carries the ETag supplied by the backend, e.g. {@code x-etag}.
+         *
+         * <p> If not configured or absent from the response metadata, the ETag is computed from the hash of the
+         * serialized response message.
+         */
+        private @Nullable String metadataKey;
+    }
+
+    @Data
+    public static class RequestCoalescing {
+        /**
+         * Whether to coalesce identical concurrent requests of GET unary routes into one gRPC call, default false.
+         *
+         * <p> Requests with different values of the headers forwarded to the gRPC call are never coalesced, except for
+         * {@link #excludedHeaders}.
+         *
+         * @see TranscodingRequestCoalescer
+         */
+        private boolean enabled = false;
+
+        /**
+         * gRPC full method names of the routes to coalesce, e.g. {@code bookstore.Bookstore/GetShelf}.
+         *
+         * <p> If empty, all GET unary routes are coalesced.
+         */
+        private List<String> routes = new ArrayList<>();
+
+        /**
+         * Forwarded request headers that are not part of the coalescing key, default {@code traceparent},
+         * {@code tracestate} and {@code b3}.
+         *
+         * <p> All the request headers forwarded to the gRPC call (see {@link HeaderConverter}) are part of the key by
+         * default, list the headers that responses don't depend on, e.g. per-request tracing headers, otherwise
+         * such requests are never coalesced.
+         */
+        private List<String> excludedHeaders = new ArrayList<>(List.of("traceparent", "tracestate", "b3"));
+    }
+
+    /**
+     * Server streaming responses are written as NDJSON (one JSON message per line) instead of SSE when the client
+     * explicitly accepts {@code application/x-ndjson}.
+     *
+     * <p> Messages are written without per-message framing and flushed in batches: the output is flushed every
+     * {@link #flushMessages} messages, or when {@link #flushInterval} elapses since the first unflushed message,
+     * whichever comes first.
+     */
+    @Data
+    public static class Ndjson {
+        /**
+         * Max number of messages written before flushing, default 32.
+         */
+        private int flushMessages = 32;
+
+        /**
+         * Max time a written message waits before flushing, default 1ms.
+         */
+        private Duration flushInterval = Duration.ofMillis(1);
+    }
+
+    /**
+     * Batch endpoint that executes many unary calls in one HTTP request.
+     *
+     * <p> The request body is a JSON array of {@code {"method": "GET", "path": "/v1/foo", "body": {...}}} items, each
+     * item is resolved through the transcoding routes. The response body is a JSON array of
+     * {@code {"status": 200, "body": {...}}} results in the order of the items, failed items are mapped by the
+     * transcoding exception resolver, the status and the body of the resolved response are kept.
+     *
+     * <p> <b>Security:</b> items are routed inside the handler of the batch endpoint, they don't go through the
+     * servlet filters or the web filters again. URL-based authorization (e.g. Spring Security request matchers) only
+     * checks {@link #path}, not the method and path of each item. Protect {@link #path} as strictly as the most
+     * sensitive route reachable through it, or authorize in the gRPC services (e.g. a
+     * {@link io.grpc.ServerInterceptor}), which see every item call.
+     */
+    @Data
+    public static class Batch {
+        /**
+         * Whether to enable the batch endpoint, default false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Path of the batch endpoint, only {@code POST} is supported, default {@code /transcoding/batch}.
+         */
+        private String path = "/transcoding/batch";
+
+        /**
+         * Max number of items called concurrently in a batch request, default 8.
+         */
+        private int parallelism = 8;
+
+        /**
+         * Max number of items in a batch request, default 100.
+         */
+        private int maxItems = 100;
+    }
+
+    /**
+     * Deadline of the transcoded gRPC calls, calls have no deadline by default.
+     *
+     * <p> The timeout is taken from the {@link #header} of the HTTP request if present, otherwise from
+     * {@link #routes}, otherwise {@link #defaultTimeout}.
+     */
+    @Data
+    public static class Deadline {
+        /**
+         * HTTP header carrying the timeout of the request, e.g. {@code X-Request-Timeout}, not set by default.
+         *
+         * <p> The value is a duration, e.g. {@code 500ms}, {@code 5s}, a plain number means milliseconds. If the header
+         * is {@code grpc-timeout}, the value uses the gRPC format, e.g. {@code 500m}.
+         */
+        @Nullable
+        private String header;
+
+        /**
+         * Timeout of the calls without a timeout header or a route timeout, not set by default.
+         */
+        @Nullable
+        private Duration defaultTimeout;
+
+        /**
+         * Timeout per route, gRPC full method name -> timeout.
+         *
+         * <p> Example: {@code grpc.transcoding.deadline.routes[bookstore.Bookstore/GetShelf]=2s}
+         */
+        private Map<String, Duration> routes = new LinkedHashMap<>();
+
+        /**
+         * Max timeout accepted from the timeout header, larger values are capped, not set by default.
+         */
+        @Nullable
+        private Duration maxTimeout;
+    }
+
+    /**
+     * In-flight limits of the transcoded gRPC calls, globally and per route.
+     *
+     * <p> A call holds a permit from start to close, calls over the limit are rejected with 429 and a
+     * {@code Retry-After} header.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+        /**
+         * Whether to enable the concurrency limits, default false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Max number of in-flight calls of all routes, non-positive means no global limit, default 0.
+         */
+        private int maxInFlight = 0;
+
+        /**
+         * Max number of in-flight calls per route, gRPC full method name -> limit.
+         *
+         * <p> Example: {@code grpc.transcoding.concurrency-limit.routes[bookstore.Bookstore/ListShelves]=64}
+         */
+        private Map<String, Integer> routes = new LinkedHashMap<>();
+
+        /**
+         * Value of the {@code Retry-After} header of rejected requests, rounded up to seconds, default 1s.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Serve gRPC on the port of the servlet web server, next to the transcoded HTTP/JSON routes.
+     *
+     * <p> Requests with {@code content-type: application/grpc} are dispatched to the gRPC services in-process,
+     * everything else goes to the web application as usual. The web server must support HTTP/2 with trailers, e.g.
+     * {@code server.http2.enabled=true} on Tomcat or Jetty.
+     *
+     * <p> Combine with {@code grpc.server.in-process.name} to drop the standalone gRPC listener, so that only one port
+     * is served.
+     */
+    @Data
+    public static class SharedPort {
+        /**
+         * Whether to serve gRPC on the web server port, default false.
+         *
+         * <p> Only works for servlet web applications, requires {@code io.grpc:grpc-servlet-jakarta}.
+         *
+         * @see SharedPortGrpcFilter
+         */
+        private boolean enabled = false;
+    }
+
+    /**
+     * Serve gRPC-Web calls from the servlet web server, browser clients reach the gRPC services without a proxy.
+     *
+     * <p> Binary ({@code application/grpc-web}) and text ({@code application/grpc-web-text}) modes, unary and
+     * server-streaming methods are supported.
+     *
+     * <p> gRPC-Web calls are answered by a servlet filter and never reach Spring MVC, so MVC CORS mappings don't apply
+     * to them. Filters ordered before {@link #order} (e.g. Spring Security, a {@code CorsFilter}) see the calls as
+     * usual, configure {@link #cors} to let the filter answer cross-origin calls itself.
+     */
+    @Data
+    public static class GrpcWeb {
+        /**
+         * Whether to serve gRPC-Web calls, default false.
+         *
+         * <p> Only works for servlet web applications.
+         *
+         * @see GrpcWebFilter
+         */
+        private boolean enabled = false;
+        /**
+         * Order of the gRPC-Web filter, default {@link Ordered#LOWEST_PRECEDENCE}.
+         *
+         * <p> The filter answers gRPC-Web calls without calling the rest of the chain, filters ordered after it never
+         * see them. The default runs it after the other filters, including Spring Security and {@code CorsFilter}.
+         */
+        private int order = Ordered.LOWEST_PRECEDENCE;
+        /**
+         * CORS configuration of gRPC-Web calls, disabled unless allowed origins or origin patterns are set.
+         */
+        private Cors cors = new Cors();
+
+        @Data
+        public static class Cors {
+            /**
+             * Allowed origins, e.g. {@code https://example.com}, {@code *} allows any origin.
+             */
+            private List<String> allowedOrigins = new ArrayList<>();
+            /**
+             * Allowed origin patterns, e.g. {@code https://*.example.com}.
+             */
+            private List<String> allowedOriginPatterns = new ArrayList<>();
+            /**
+             * Allowed request headers, default {@code *}.
+             */
+            private List<String> allowedHeaders = new ArrayList<>(List.of("*"));
+            /**
+             * Response headers exposed to the browser, {@code grpc-status} and {@code grpc-message} are always exposed.
+             */
+            private List<String> exposedHeaders = new ArrayList<>();
+            /**
+             * Whether credentials are supported, default false.
+             */
+            private boolean allowCredentials = false;
+            /**
+             * How long the response of a preflight request can be cached by clients, default 30 minutes.
+             */
+            private Duration maxAge = Duration.ofMinutes(30);
+        }
+    }
 }
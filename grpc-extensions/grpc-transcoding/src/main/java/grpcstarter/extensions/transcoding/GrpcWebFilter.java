@@ -0,0 +1,378 @@
+package grpcstarter.extensions.transcoding;
+
+import static grpcstarter.extensions.transcoding.Util.getMaxRequestBodySize;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.BindableService;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsProcessor;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Serves gRPC-Web calls from the servlet web server, browser clients don't need a gRPC-Web proxy.
+ *
+ * <p> Supports the binary ({@code application/grpc-web}) and the text ({@code application/grpc-web-text}) modes,
+ * unary and server-streaming methods. Calls are dispatched in-process to the gRPC services through the
+ * {@link DirectDispatchChannel}, configured like the gRPC server ({@link ServerInterceptor}s, inbound limits and
+ * customizers). The messages are passed through as protobuf bytes, never converted to JSON.
+ *
+ * <p> Server-streaming responses hold the servlet thread until the stream completes, each message is flushed as soon
+ * as it is written.
+ *
+ * <p> The filter answers gRPC-Web calls without calling the rest of the chain. Cross-origin calls (including preflight
+ * requests) are answered according to {@link GrpcTranscodingProperties.GrpcWeb#getCors()} when allowed origins are
+ * configured, a CORS response already written by a previous filter is left as is.
+ *
+ * @author Freeman
+ * @see <a href="https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-WEB.md">gRPC-Web protocol</a>
+ * @see GrpcTranscodingProperties.GrpcWeb
+ * @since 4.1.0
+ */
+public class GrpcWebFilter extends OncePerRequestFilter {
+
+    static final String CONTENT_TYPE_GRPC_WEB = "application/grpc-web";
+    static final String CONTENT_TYPE_GRPC_WEB_TEXT = "application/grpc-web-text";
+
+    private static final byte DATA_FRAME = 0x00;
+    private static final byte TRAILER_FRAME = (byte) 0x80;
+    private static final byte COMPRESSED_FLAG = 0x01;
+    private static final int FRAME_HEADER_LENGTH = 5;
+
+    private static final Metadata.Key<String> GRPC_TIMEOUT =
+            Metadata.Key.of(Util.GRPC_TIMEOUT, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final Map<String, MethodDescriptor<Object, Object>> methods = new HashMap<>();
+    private final Channel channel;
+    private final HeaderConverter headerConverter;
+    private final int prefetch;
+    private final long maxRequestBodySize;
+    private final @Nullable CorsConfiguration corsConfiguration;
+    private final CorsProcessor corsProcessor = new DefaultCorsProcessor();
+
+    /**
+     * @param services                  gRPC services, calls to other methods fail with {@code UNIMPLEMENTED}
+     * @param channel                   in-process channel to the gRPC services, shared with direct dispatch
+     * @param headerConverter           header converter
+     * @param grpcTranscodingProperties transcoding properties
+     * @param grpcServerProperties      gRPC server properties
+     */
+    public GrpcWebFilter(
+            List<BindableService> services,
+            Channel channel,
+            HeaderConverter headerConverter,
+            GrpcTranscodingProperties grpcTranscodingProperties,
+            GrpcServerProperties grpcServerProperties) {
+        for (var service : services) {
+            for (var method : service.bindService().getMethods()) {
+                var descriptor = method.getMethodDescriptor();
+                methods.put(
+                        descriptor.getFullMethodName(),
+                        descriptor.toBuilder(BytesMarshaller.INSTANCE, BytesMarshaller.INSTANCE)
+                                .build());
+            }
+        }
+        this.channel = channel;
+        this.headerConverter = headerConverter;
+        this.prefetch = grpcTranscodingProperties.getServerStreamingPrefetch();
+        this.maxRequestBodySize = getMaxRequestBodySize(grpcTranscodingProperties, grpcServerProperties);
+        this.corsConfiguration = toCorsConfiguration(grpcTranscodingProperties.getGrpcWeb().getCors());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (corsConfiguration != null && CorsUtils.isPreFlightRequest(request)) {
+            return !methods.containsKey(getFullMethodName(request));
+        }
+        return !HttpMethod.POST.matches(request.getMethod()) || !isGrpcWeb(request.getContentType());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws IOException {
+        if (corsConfiguration != null && CorsUtils.isCorsRequest(request)) {
+            boolean allowed = corsProcessor.processRequest(corsConfiguration, request, response);
+            if (!allowed || CorsUtils.isPreFlightRequest(request)) {
+                return;
+            }
+        }
+
+        var contentType = request.getContentType();
+        boolean text =
+                contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(CONTENT_TYPE_GRPC_WEB_TEXT);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType((text ? CONTENT_TYPE_GRPC_WEB_TEXT : CONTENT_TYPE_GRPC_WEB) + "+proto");
+
+        var fullMethodName = getFullMethodName(request);
+        var method = methods.get(fullMethodName);
+        if (method == null) {
+            writeTrailers(response, Status.UNIMPLEMENTED.withDescription("Method not found: " + fullMethodName), text);
+            return;
+        }
+        if (!method.getType().clientSendsOneMessage()) {
+            writeTrailers(
+                    response, Status.UNIMPLEMENTED.withDescription("gRPC-Web doesn't support client streaming"), text);
+            return;
+        }
+
+        var httpHeaders = new ServletServerHttpRequest(request).getHeaders();
+        Object message;
+        CallOptions callOptions;
+        try {
+            message = readMessage(request.getInputStream(), text);
+            callOptions = getCallOptions(httpHeaders);
+        } catch (StatusRuntimeException e) {
+            writeTrailers(response, e.getStatus(), text);
+            return;
+        } catch (LimitedInputStream.LimitExceededException e) {
+            writeTrailers(response, Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()), text);
+            return;
+        } catch (ResponseStatusException e) {
+            writeTrailers(response, Status.INVALID_ARGUMENT.withDescription(e.getReason()), text);
+            return;
+        }
+
+        var metadata = headerConverter.toMetadata(httpHeaders);
+        metadata.discardAll(GRPC_TIMEOUT); // applied as the deadline
+
+        var responseHeaders = new AtomicReference<Metadata>();
+        var responseTrailers = new AtomicReference<Metadata>();
+        ClientCall<Object, Object> call = HeaderForwardingClientCall.wrap(
+                channel.newCall(method, callOptions), metadata, responseHeaders, responseTrailers);
+        var observer = BlockingServerStreamingObserver.start(call, message, prefetch);
+
+        Status status = Status.OK;
+        try {
+            var out = response.getOutputStream();
+            boolean headersWritten = false;
+            for (Object m = observer.take(); m != BlockingServerStreamingObserver.END; m = observer.take()) {
+                if (!headersWritten) {
+                    addHeaders(response, responseHeaders.get());
+                    headersWritten = true;
+                }
+                writeFrame(out, DATA_FRAME, (byte[]) m, text);
+                out.flush();
+            }
+            if (!headersWritten) {
+                addHeaders(response, responseHeaders.get());
+            }
+        } catch (StatusRuntimeException e) {
+            status = e.getStatus();
+            if (responseTrailers.get() == null && e.getTrailers() != null) {
+                responseTrailers.set(e.getTrailers());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            observer.cancel("Interrupted", e);
+            return;
+        } catch (IOException | UncheckedIOException e) {
+            observer.cancel("Client disconnected", e);
+            throw e;
+        }
+
+        writeTrailers(response, status, responseTrailers.get(), text);
+    }
+
+    private static String getFullMethodName(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length() + 1);
+    }
+
+    private static @Nullable CorsConfiguration toCorsConfiguration(GrpcTranscodingProperties.GrpcWeb.Cors cors) {
+        if (cors.getAllowedOrigins().isEmpty() && cors.getAllowedOriginPatterns().isEmpty()) {
+            return null;
+        }
+        var config = new CorsConfiguration();
+        config.setAllowedOrigins(cors.getAllowedOrigins());
+        config.setAllowedOriginPatterns(cors.getAllowedOriginPatterns());
+        config.setAllowedMethods(List.of(HttpMethod.POST.name()));
+        config.setAllowedHeaders(cors.getAllowedHeaders());
+        config.setExposedHeaders(List.of("grpc-status", "grpc-message"));
+        cors.getExposedHeaders().forEach(config::addExposedHeader);
+        config.setAllowCredentials(cors.isAllowCredentials());
+        config.setMaxAge(cors.getMaxAge());
+        config.validateAllowCredentials();
+        return config;
+    }
+
+    static boolean isGrpcWeb(@Nullable String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(CONTENT_TYPE_GRPC_WEB);
+    }
+
+    private Object readMessage(InputStream is, boolean text) throws IOException {
+        // text mode: the limit applies to the decoded frame, the base64 body is about 4/3 of it
+        long limit = text ? base64Length(maxRequestBodySize) : maxRequestBodySize;
+        byte[] body;
+        try (var in = new LimitedInputStream(is, limit, false)) {
+            body = in.readAllBytes();
+        }
+        if (text) {
+            body = decodeBase64(body);
+            if (body.length > maxRequestBodySize) {
+                throw new LimitedInputStream.LimitExceededException(maxRequestBodySize);
+            }
+        }
+        if (body.length < FRAME_HEADER_LENGTH) {
+            throw Status.INTERNAL.withDescription("Incomplete gRPC-Web frame").asRuntimeException();
+        }
+        var buffer = ByteBuffer.wrap(body);
+        byte flag = buffer.get();
+        if ((flag & COMPRESSED_FLAG) != 0) {
+            throw Status.UNIMPLEMENTED
+                    .withDescription("Compressed gRPC-Web messages are not supported")
+                    .asRuntimeException();
+        }
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw Status.INTERNAL.withDescription("Incomplete gRPC-Web frame").asRuntimeException();
+        }
+        var message = new byte[length];
+        buffer.get(message);
+        return message;
+    }
+
+    private CallOptions getCallOptions(HttpHeaders headers) {
+        var timeout = headers.getFirst(Util.GRPC_TIMEOUT);
+        if (!StringUtils.hasText(timeout)) {
+            return CallOptions.DEFAULT;
+        }
+        var duration = Util.parseTimeout(Util.GRPC_TIMEOUT, timeout);
+        return CallOptions.DEFAULT.withDeadlineAfter(duration.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void addHeaders(HttpServletResponse response, @Nullable Metadata headers) {
+        if (headers == null) {
+            return;
+        }
+        headerConverter.toHttpHeaders(headers).forEach((k, values) -> values.forEach(v -> response.addHeader(k, v)));
+    }
+
+    private void writeTrailers(HttpServletResponse response, Status status, boolean text) throws IOException {
+        writeTrailers(response, status, null, text);
+    }
+
+    private void writeTrailers(
+            HttpServletResponse response, Status status, @Nullable Metadata trailers, boolean text)
+            throws IOException {
+        var sb = new StringBuilder();
+        sb.append("grpc-status:").append(status.getCode().value()).append("\r\n");
+        var description = status.getDescription();
+        if (description != null) {
+            sb.append("grpc-message:").append(percentEncode(description)).append("\r\n");
+        }
+        if (trailers != null) {
+            headerConverter.toHttpHeaders(trailers).forEach((k, values) -> {
+                for (var v : values) {
+                    sb.append(k.toLowerCase(Locale.ROOT)).append(':').append(v).append("\r\n");
+                }
+            });
+        }
+        var out = response.getOutputStream();
+        writeFrame(out, TRAILER_FRAME, sb.toString().getBytes(StandardCharsets.US_ASCII), text);
+        out.flush();
+    }
+
+    private static void writeFrame(OutputStream out, byte flag, byte[] data, boolean text) throws IOException {
+        var frame = ByteBuffer.allocate(FRAME_HEADER_LENGTH + data.length)
+                .put(flag)
+                .putInt(data.length)
+                .put(data)
+                .array();
+        // text mode: each frame is encoded separately, clients decode the padded chunks one by one
+        out.write(text ? Base64.getEncoder().encode(frame) : frame);
+    }
+
+    private static long base64Length(long size) {
+        return size > Long.MAX_VALUE / 4 * 3 - 2 ? Long.MAX_VALUE : (size + 2) / 3 * 4;
+    }
+
+    /**
+     * Decode base64 that may be the concatenation of separately padded chunks.
+     */
+    static byte[] decodeBase64(byte[] body) {
+        var decoder = Base64.getMimeDecoder(); // ignores line breaks
+        var result = new ByteArrayOutputStream(body.length * 3 / 4);
+        int start = 0;
+        for (int i = 0; i < body.length; i++) {
+            if (body[i] == '=' && (i + 1 == body.length || body[i + 1] != '=')) {
+                result.writeBytes(decoder.decode(Arrays.copyOfRange(body, start, i + 1)));
+                start = i + 1;
+            }
+        }
+        if (start < body.length) {
+            result.writeBytes(decoder.decode(Arrays.copyOfRange(body, start, body.length)));
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * @see <a href="https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-HTTP2.md#responses">grpc-message</a>
+     */
+    private static String percentEncode(String value) {
+        var sb = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= ' ' && b <= '~' && b != '%') {
+                sb.append((char) b);
+            } else {
+                sb.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return sb.toString();
+    }
+
+    private enum BytesMarshaller implements MethodDescriptor.Marshaller<Object> {
+        INSTANCE;
+
+        @Override
+        public InputStream stream(Object value) {
+            return new ByteArrayInputStream((byte[]) value);
+        }
+
+        @Override
+        public Object parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw Status.INTERNAL
+                        .withDescription("Failed to read message")
+                        .withCause(e)
+                        .asRuntimeException();
+            }
+        }
+    }
+}
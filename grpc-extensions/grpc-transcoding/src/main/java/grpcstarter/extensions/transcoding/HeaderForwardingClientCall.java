@@ -0,0 +1,85 @@
+package grpcstarter.extensions.transcoding;
+
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * {@link ClientCall} that attaches the converted http headers to the call and optionally captures the response
+ * headers and trailers.
+ *
+ * <p> Same as {@link io.grpc.stub.MetadataUtils#newAttachHeadersInterceptor} combined with
+ * {@link io.grpc.stub.MetadataUtils#newCaptureMetadataInterceptor}, but wraps the call directly, so no intercepted
+ * channel and interceptors are created per request.
+ *
+ * @author Freeman
+ */
+final class HeaderForwardingClientCall<ReqT, RespT>
+        extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final Metadata extraHeaders;
+    private final @Nullable AtomicReference<Metadata> responseHeaders;
+    private final @Nullable AtomicReference<Metadata> responseTrailers;
+
+    private HeaderForwardingClientCall(
+            ClientCall<ReqT, RespT> delegate,
+            Metadata extraHeaders,
+            @Nullable AtomicReference<Metadata> responseHeaders,
+            @Nullable AtomicReference<Metadata> responseTrailers) {
+        super(delegate);
+        this.extraHeaders = extraHeaders;
+        this.responseHeaders = responseHeaders;
+        this.responseTrailers = responseTrailers;
+    }
+
+    /**
+     * @param call             client call
+     * @param extraHeaders     headers to attach to the call, merged into the call headers, can be shared by calls
+     * @param responseHeaders  receives the response headers, null if not needed
+     * @param responseTrailers receives the response trailers, null if not needed
+     * @param <ReqT>           request type
+     * @param <RespT>          response type
+     * @return wrapped call
+     */
+    static <ReqT, RespT> ClientCall<ReqT, RespT> wrap(
+            ClientCall<ReqT, RespT> call,
+            Metadata extraHeaders,
+            @Nullable AtomicReference<Metadata> responseHeaders,
+            @Nullable AtomicReference<Metadata> responseTrailers) {
+        return new HeaderForwardingClientCall<>(call, extraHeaders, responseHeaders, responseTrailers);
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+        headers.merge(extraHeaders);
+        if (responseHeaders == null && responseTrailers == null) {
+            super.start(responseListener, headers);
+            return;
+        }
+        super.start(
+                new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onHeaders(Metadata headers) {
+                        var ref = responseHeaders;
+                        if (ref != null) {
+                            ref.set(headers);
+                        }
+                        super.onHeaders(headers);
+                    }
+
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        var ref = responseTrailers;
+                        if (ref != null) {
+                            ref.set(trailers);
+                        }
+                        super.onClose(status, trailers);
+                    }
+                },
+                headers);
+    }
+}
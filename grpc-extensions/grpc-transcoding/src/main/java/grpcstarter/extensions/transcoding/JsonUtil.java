@@ -6,8 +6,14 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.MessageOrBuilder;
 import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import org.jspecify.annotations.Nullable;
 import org.springframework.beans.BeanUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
 import tools.jackson.core.JacksonException;
 import tools.jackson.core.JsonGenerator;
 import tools.jackson.databind.SerializationContext;
@@ -26,6 +32,8 @@ final class JsonUtil {
         throw new UnsupportedOperationException("Cannot instantiate utility class");
     }
 
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
     private static final JsonMapper om;
 
     private static JsonFormat.@Nullable Printer printer;
@@ -49,6 +57,37 @@ final class JsonUtil {
         return om.writeValueAsString(obj);
     }
 
+    /**
+     * Write the Java bean or Protobuf {@link Message} as JSON to the output stream.
+     *
+     * <p> Same output as {@link #toJson(Object)}, but the JSON is encoded straight into the output stream,
+     * no intermediate JSON string is built.
+     *
+     * @param obj the object/{@link Message} to encode
+     * @param os  the output stream to write to, will not be closed
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeJson(Object obj, OutputStream os) throws IOException {
+        if (obj instanceof MessageOrBuilder m) {
+            var writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+            getPrinter().appendTo(m, writer);
+            writer.flush();
+            return;
+        }
+        om.writeValue(StreamUtils.nonClosing(os), obj);
+    }
+
+    /**
+     * Get the content type of the JSON encoded object.
+     *
+     * @param obj the object/{@link Message} to encode
+     * @return {@link MediaType#APPLICATION_JSON} if the encoded object is a JSON object/array, otherwise text/plain
+     * @see #canParseJson(Object)
+     */
+    public static MediaType getContentType(Object obj) {
+        return canParseJson(obj) ? MediaType.APPLICATION_JSON : TEXT_PLAIN_UTF8;
+    }
+
     public static boolean canParseJson(Object obj) {
         if (obj instanceof Message m) {
             return !isSimpleValueMessage(m);
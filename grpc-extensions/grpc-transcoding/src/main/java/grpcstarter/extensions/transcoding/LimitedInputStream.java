@@ -0,0 +1,108 @@
+package grpcstarter.extensions.transcoding;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} that fails with {@link LimitExceededException} as soon as more than the limit is read, the body
+ * is never buffered beyond the limit.
+ *
+ * <p> The failure is an {@link IOException} on purpose, parsers (e.g. {@code JsonFormat}) rethrow runtime exceptions
+ * of the stream as parse errors, but propagate {@link IOException}s; callers map it to 413.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties#getMaxRequestBodySize()
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private final boolean perLine;
+
+    private long count;
+
+    /**
+     * @param in      input stream
+     * @param limit   max number of bytes
+     * @param perLine whether the limit applies to each line instead of the whole stream
+     */
+    LimitedInputStream(InputStream in, long limit, boolean perLine) {
+        super(in);
+        this.limit = limit;
+        this.perLine = perLine;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (perLine && b == '\n') {
+            count = 0;
+        } else if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n <= 0) {
+            return n;
+        }
+        if (!perLine) {
+            count(n);
+            return n;
+        }
+        int lineStart = off;
+        for (int i = off; i < off + n; i++) {
+            if (b[i] == '\n') {
+                count(i - lineStart);
+                count = 0;
+                lineStart = i + 1;
+            }
+        }
+        count(off + n - lineStart);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0 && !perLine) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) throws LimitExceededException {
+        count += n;
+        if (count > limit) {
+            throw new LimitExceededException(limit);
+        }
+    }
+
+    /**
+     * Thrown when more than the limit is read.
+     */
+    static final class LimitExceededException extends IOException {
+
+        private final long limit;
+
+        LimitExceededException(long limit) {
+            super("Request body exceeds the limit of " + limit + " bytes");
+            this.limit = limit;
+        }
+
+        /**
+         * @return max number of bytes
+         */
+        long getLimit() {
+            return limit;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package grpcstarter.extensions.transcoding;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TranscodingMetrics} implementation backed by Micrometer.
+ *
+ * <p> Meters:
+ * <ul>
+ *     <li>{@code grpc.transcoding.phase.duration}: timer, tagged by {@code method} and {@code phase}</li>
+ *     <li>{@code grpc.transcoding.payload.size}: distribution summary in bytes,
+ *     tagged by {@code method} and {@code payload}</li>
+ * </ul>
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+public class MicrometerTranscodingMetrics implements TranscodingMetrics {
+
+    public static final String PHASE_DURATION = "grpc.transcoding.phase.duration";
+    public static final String PAYLOAD_SIZE = "grpc.transcoding.payload.size";
+
+    private final MeterRegistry registry;
+
+    /**
+     * Meters are cached per method, looking up meters from the registry on every call is relatively expensive.
+     */
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary[]> summaries = new ConcurrentHashMap<>();
+
+    public MicrometerTranscodingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordDuration(String fullMethodName, Phase phase, long nanos) {
+        var timer = timers.computeIfAbsent(fullMethodName, this::createTimers)[phase.ordinal()];
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPayloadSize(String fullMethodName, Payload payload, long bytes) {
+        var summary = summaries.computeIfAbsent(fullMethodName, this::createSummaries)[payload.ordinal()];
+        summary.record(bytes);
+    }
+
+    private Timer[] createTimers(String fullMethodName) {
+        var phases = Phase.values();
+        var result = new Timer[phases.length];
+        for (var phase : phases) {
+            result[phase.ordinal()] = Timer.builder(PHASE_DURATION)
+                    .description("Duration of gRPC transcoding phases")
+                    .tag("method", fullMethodName)
+                    .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        return result;
+    }
+
+    private DistributionSummary[] createSummaries(String fullMethodName) {
+        var payloads = Payload.values();
+        var result = new DistributionSummary[payloads.length];
+        for (var payload : payloads) {
+            result[payload.ordinal()] = DistributionSummary.builder(PAYLOAD_SIZE)
+                    .description("Size of gRPC transcoding http payloads")
+                    .baseUnit("bytes")
+                    .tag("method", fullMethodName)
+                    .tag("payload", payload.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        return result;
+    }
+}
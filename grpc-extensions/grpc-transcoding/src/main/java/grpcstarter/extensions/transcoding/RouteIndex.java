@@ -0,0 +1,213 @@
+package grpcstarter.extensions.transcoding;
+
+import static grpcstarter.extensions.transcoding.Util.trim;
+
+import com.google.api.pathtemplate.PathTemplate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Route index for routes declared by {@code google.api.http} options (including {@code additional_bindings}).
+ *
+ * <p> Bindings are compiled into a segment trie per HTTP method, keyed by literal path segments, with dedicated edges
+ * for {@code *} and {@code **}. Looking up a request path walks the trie (O(path segments)) to collect the candidate
+ * bindings, only those candidates are matched against their {@link PathTemplate} to extract path variables.
+ *
+ * <p> When multiple bindings match, the one registered first wins, same as iterating the routes in declaration order.
+ *
+ * @author Freeman
+ */
+final class RouteIndex {
+
+    private static final String WILDCARD = "*";
+    private static final String PATH_WILDCARD = "**";
+
+    private final Map<HttpMethod, Node> roots = new HashMap<>();
+
+    private int size;
+
+    /**
+     * Add a binding to the index.
+     *
+     * @param httpMethod http method
+     * @param path       path template, e.g. {@code /v1/{name=shelves/*}}
+     * @param route      route to return when the binding matches
+     */
+    void add(HttpMethod httpMethod, String path, Util.Route route) {
+        var binding = new Binding(size++, PathTemplate.create(path), route);
+
+        var node = roots.computeIfAbsent(httpMethod, k -> new Node());
+        for (String segment : templateSegments(path)) {
+            if (PATH_WILDCARD.equals(segment)) {
+                // '**' matches any number of segments, let PathTemplate decide the rest.
+                var next = node.pathWildcard;
+                if (next == null) {
+                    next = new Node();
+                    node.pathWildcard = next;
+                }
+                node = next;
+                break;
+            }
+            if (WILDCARD.equals(segment)) {
+                var next = node.wildcard;
+                if (next == null) {
+                    next = new Node();
+                    node.wildcard = next;
+                }
+                node = next;
+            } else {
+                node = node.literals.computeIfAbsent(segment, k -> new Node());
+            }
+        }
+        node.bindings.add(binding);
+    }
+
+    /**
+     * Find the first binding matching the request.
+     *
+     * @param httpMethod request http method
+     * @param path       request path
+     * @return matched route with path variables, or null if no binding matches
+     */
+    @Nullable Match match(HttpMethod httpMethod, String path) {
+        var root = roots.get(httpMethod);
+        if (root == null) {
+            return null;
+        }
+
+        var trimmedPath = trim(path, '/');
+        var candidates = new ArrayList<Binding>();
+        collect(root, requestSegments(trimmedPath), 0, candidates);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() > 1) {
+            candidates.sort(Comparator.comparingInt(Binding::order));
+        }
+
+        boolean hasColon = trimmedPath.contains(":");
+        for (var binding : candidates) {
+            if (hasColon && !binding.pathTemplate().endsWithCustomVerb()) {
+                continue;
+            }
+            Map<String, String> variables = binding.pathTemplate().match(trimmedPath);
+            if (variables != null) {
+                return new Match(binding.route(), variables);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of bindings in this index
+     */
+    int size() {
+        return size;
+    }
+
+    private static void collect(Node node, String[] segments, int index, List<Binding> result) {
+        var pathWildcard = node.pathWildcard;
+        if (pathWildcard != null) {
+            addAll(pathWildcard, result);
+        }
+        if (index == segments.length) {
+            result.addAll(node.bindings);
+            return;
+        }
+        var literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            collect(literal, segments, index + 1, result);
+        }
+        var wildcard = node.wildcard;
+        if (wildcard != null) {
+            collect(wildcard, segments, index + 1, result);
+        }
+    }
+
+    private static void addAll(Node node, List<Binding> result) {
+        result.addAll(node.bindings);
+        node.literals.values().forEach(n -> addAll(n, result));
+        var wildcard = node.wildcard;
+        if (wildcard != null) {
+            addAll(wildcard, result);
+        }
+        var pathWildcard = node.pathWildcard;
+        if (pathWildcard != null) {
+            addAll(pathWildcard, result);
+        }
+    }
+
+    /**
+     * Split request path into segments, the custom verb of the last segment is ignored.
+     */
+    private static String[] requestSegments(String trimmedPath) {
+        if (trimmedPath.isEmpty()) {
+            return new String[0];
+        }
+        int lastSlash = trimmedPath.lastIndexOf('/');
+        int colon = trimmedPath.indexOf(':', lastSlash + 1);
+        var p = colon >= 0 ? trimmedPath.substring(0, colon) : trimmedPath;
+        return p.split("/", -1);
+    }
+
+    /**
+     * Split path template into segments, variables are replaced with their patterns and the custom verb is ignored.
+     *
+     * <p> e.g. {@code /v1/{name=shelves/*}/books/{book}:publish} -> {@code [v1, shelves, *, books, *]}
+     */
+    static List<String> templateSegments(String template) {
+        var sb = new StringBuilder(template.length());
+        int verbStart = -1;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                int end = template.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Invalid path template: " + template);
+                }
+                var variable = template.substring(i + 1, end);
+                int eq = variable.indexOf('=');
+                sb.append(eq >= 0 ? variable.substring(eq + 1) : WILDCARD);
+                i = end;
+            } else {
+                if (c == '/') {
+                    verbStart = -1;
+                } else if (c == ':') {
+                    verbStart = sb.length();
+                }
+                sb.append(c);
+            }
+        }
+        if (verbStart >= 0) {
+            sb.setLength(verbStart);
+        }
+
+        var path = trim(sb.toString(), '/');
+        if (path.isEmpty()) {
+            return List.of();
+        }
+        return List.of(path.split("/", -1));
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<Binding> bindings = new ArrayList<>(1);
+        private @Nullable Node wildcard;
+        private @Nullable Node pathWildcard;
+    }
+
+    private record Binding(int order, PathTemplate pathTemplate, Util.Route route) {}
+
+    /**
+     * Matched route and its path variables.
+     *
+     * @param route         matched route
+     * @param pathVariables path variables extracted by the {@link PathTemplate}
+     */
+    record Match(Util.Route route, Map<String, String> pathVariables) {}
+}
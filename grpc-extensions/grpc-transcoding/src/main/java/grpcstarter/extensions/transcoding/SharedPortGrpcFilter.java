@@ -0,0 +1,62 @@
+package grpcstarter.extensions.transcoding;
+
+import grpcstarter.server.DefaultGrpcServer;
+import grpcstarter.server.GrpcServerCustomizer;
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.BindableService;
+import io.grpc.ServerInterceptor;
+import io.grpc.servlet.jakarta.ServletAdapter;
+import io.grpc.servlet.jakarta.ServletServerBuilder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Serves gRPC on the port of the servlet web server.
+ *
+ * <p> Requests with {@code content-type: application/grpc} are handled by an in-process gRPC servlet server
+ * configured like the gRPC server (services, {@link ServerInterceptor}s, inbound size limits and
+ * {@link GrpcServerCustomizer}s), other requests continue down the filter chain to the transcoders and the rest of
+ * the web application.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.SharedPort
+ * @since 4.1.0
+ */
+public class SharedPortGrpcFilter extends OncePerRequestFilter {
+
+    private final ServletAdapter servletAdapter;
+
+    public SharedPortGrpcFilter(
+            List<BindableService> services,
+            List<ServerInterceptor> serverInterceptors,
+            List<GrpcServerCustomizer> serverCustomizers,
+            GrpcServerProperties grpcServerProperties) {
+        this.servletAdapter = DefaultGrpcServer.configureServerBuilder(
+                        new ServletServerBuilder(),
+                        grpcServerProperties,
+                        services,
+                        serverInterceptors,
+                        serverCustomizers)
+                .buildServletAdapter();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (ServletAdapter.isGrpc(request) && !GrpcWebFilter.isGrpcWeb(request.getContentType())) {
+            servletAdapter.doPost(request, response);
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        servletAdapter.destroy();
+    }
+}
@@ -1,17 +1,17 @@
 package grpcstarter.extensions.transcoding;
 
-import static com.google.protobuf.Descriptors.FieldDescriptor.Type;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.api.HttpRule;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
 import org.jspecify.annotations.Nullable;
 
 /**
@@ -22,34 +22,45 @@ class Transcoder {
     private static JsonFormat.@Nullable Parser parser;
 
     private final Variable variable;
+    private final boolean protobufBody;
 
-    private Transcoder(Variable variable) {
+    private Transcoder(Variable variable, boolean protobufBody) {
         this.variable = variable;
+        this.protobufBody = protobufBody;
     }
 
     public static Transcoder create(Variable variable) {
-        return new Transcoder(variable);
+        return new Transcoder(variable, false);
     }
 
-    public void into(Message.Builder messageBuilder, HttpRule httpRule) throws InvalidProtocolBufferException {
+    /**
+     * @param variable     request variables
+     * @param protobufBody whether the request body is binary protobuf, otherwise JSON
+     * @return transcoder
+     */
+    public static Transcoder create(Variable variable, boolean protobufBody) {
+        return new Transcoder(variable, protobufBody);
+    }
+
+    public void into(Message.Builder messageBuilder, HttpRule httpRule) throws IOException {
+        into(messageBuilder, BindingPlan.create(messageBuilder.getDescriptorForType(), httpRule));
+    }
+
+    public void into(Message.Builder messageBuilder, BindingPlan bindingPlan) throws IOException {
 
         // The special name `*` can be used in the body mapping to define that
         // every field not bound by the path template should be mapped to the
         // request body.
 
-        if (!httpRule.getBody().isBlank()) {
-            var bodyStringOpt = Optional.of(variable.body().toStringUtf8()).filter(e -> !e.isBlank());
-            if (bodyStringOpt.isPresent()) {
-                if (Objects.equals(httpRule.getBody(), "*")) {
-                    merge(messageBuilder, bodyStringOpt.get());
-                } else {
-                    Descriptors.FieldDescriptor field =
-                            messageBuilder.getDescriptorForType().findFieldByName(httpRule.getBody());
-                    if (hasBuilder(field)) {
-                        Message.Builder fieldBuilder = messageBuilder.getFieldBuilder(field);
-                        if (fieldBuilder != null) {
-                            merge(fieldBuilder, bodyStringOpt.get());
-                        }
+        if (bindingPlan.hasBody()) {
+            var body = skipBlank(variable.body(), !protobufBody);
+            if (body != null) {
+                Message.Builder bodyBuilder = bindingPlan.getBodyBuilder(messageBuilder);
+                if (bodyBuilder != null) {
+                    if (protobufBody) {
+                        bodyBuilder.mergeFrom(body);
+                    } else {
+                        merge(bodyBuilder, body);
                     }
                 }
             }
@@ -69,34 +80,7 @@ class Transcoder {
         Map<String, String[]> parameters = variable.parameters();
         if (parameters != null && !parameters.isEmpty()) {
             for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
-                String key = entry.getKey();
-                String[] values = entry.getValue();
-
-                String[] fieldPath = key.split("\\.", -1);
-
-                // Navigate to the last field descriptor
-                Message.Builder lastBuilder = messageBuilder;
-                for (int i = 0; i < fieldPath.length - 1; i++) {
-                    Descriptors.FieldDescriptor field =
-                            lastBuilder.getDescriptorForType().findFieldByName(fieldPath[i]);
-                    if (hasBuilder(field)) {
-                        lastBuilder = lastBuilder.getFieldBuilder(field);
-                    }
-                }
-
-                Descriptors.FieldDescriptor field =
-                        lastBuilder.getDescriptorForType().findFieldByName(fieldPath[fieldPath.length - 1]);
-                if (isValueType(field)) {
-                    if (field.isRepeated()) {
-                        for (String value : values) {
-                            lastBuilder.addRepeatedField(field, parseValue(field, value));
-                        }
-                    } else {
-                        if (values.length > 0 && !lastBuilder.hasField(field) /* not set by request body */) {
-                            setValueField(lastBuilder, field, values[0]);
-                        }
-                    }
-                }
+                bindingPlan.bindParameter(messageBuilder, entry.getKey(), entry.getValue());
             }
         }
 
@@ -109,13 +93,7 @@ class Transcoder {
         Map<String, String> pathVariables = variable.pathVariables();
         if (pathVariables != null && !pathVariables.isEmpty()) {
             for (Map.Entry<String, String> entry : pathVariables.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                Descriptors.FieldDescriptor field =
-                        messageBuilder.getDescriptorForType().findFieldByName(key);
-                if (isValueType(field)) {
-                    setValueField(messageBuilder, field, value);
-                }
+                bindingPlan.bindPathVariable(messageBuilder, entry.getKey(), entry.getValue());
             }
         }
     }
@@ -131,64 +109,28 @@ class Transcoder {
         return response;
     }
 
-    private static void merge(Message.Builder messageBuilder, String bodyString) throws InvalidProtocolBufferException {
-        getParser().merge(bodyString, messageBuilder);
-    }
-
-    private static boolean hasBuilder(Descriptors.@Nullable FieldDescriptor field) {
-        return field != null && !field.isRepeated() && !field.isMapField() && field.getType() == Type.MESSAGE;
+    private static void merge(Message.Builder messageBuilder, InputStream body) throws IOException {
+        getParser().merge(new InputStreamReader(body, UTF_8), messageBuilder);
     }
 
-    private static void setValueField(
-            Message.@Nullable Builder lastBuilder,
-            Descriptors.@Nullable FieldDescriptor field,
-            @Nullable String values) {
-        if (lastBuilder == null || field == null || values == null) return;
-        if (isValueType(field)) {
-            lastBuilder.setField(field, parseValue(field, values));
+    /**
+     * Check whether the body is blank without buffering the whole body.
+     *
+     * @param body           request body
+     * @param skipWhitespace whether to skip the leading whitespaces, only makes sense for text body
+     * @return the body positioned at the first significant byte, or null if the body is blank
+     */
+    private static @Nullable InputStream skipBlank(InputStream body, boolean skipWhitespace) throws IOException {
+        var in = new PushbackInputStream(body, 1);
+        int b;
+        do {
+            b = in.read();
+        } while (skipWhitespace && b != -1 && Character.isWhitespace(b));
+        if (b == -1) {
+            return null;
         }
-    }
-
-    private static boolean isValueType(Descriptors.@Nullable FieldDescriptor field) {
-        return field != null
-                && switch (field.getJavaType()) {
-                    case INT, LONG, FLOAT, DOUBLE, BOOLEAN, STRING, BYTE_STRING, ENUM -> true;
-                    default -> false;
-                };
-    }
-
-    private static Object parseValue(Descriptors.FieldDescriptor field, String value) {
-        return switch (field.getJavaType()) {
-            case INT -> Integer.parseInt(value);
-            case LONG -> Long.parseLong(value);
-            case FLOAT -> Float.parseFloat(value);
-            case DOUBLE -> Double.parseDouble(value);
-            case BOOLEAN -> Boolean.parseBoolean(value);
-            case STRING -> value;
-            case BYTE_STRING -> ByteString.copyFrom(value.getBytes(UTF_8));
-            case ENUM -> {
-                if (value.isBlank()) {
-                    yield field.getEnumType().getValues().get(0);
-                }
-                if (Character.isDigit(value.charAt(0))) {
-                    try {
-                        var e = field.getEnumType().findValueByNumber(Integer.parseInt(value));
-                        if (e != null) yield e;
-                    } catch (NumberFormatException ignored) {
-                        // It's OK, try by name
-                    }
-                } else {
-                    var e = field.getEnumType().findValueByName(value);
-                    if (e != null) yield e;
-                }
-                throw new IllegalArgumentException(
-                        "Can't parse enum value '" + value + "' for field '" + field.getName() + "'");
-            }
-            case MESSAGE -> {
-                throw new IllegalArgumentException(
-                        "Direct parsing to message type not supported, field " + field.getName());
-            }
-        };
+        in.unread(b);
+        return in;
     }
 
     private static JsonFormat.Parser getParser() {
@@ -198,8 +140,21 @@ class Transcoder {
         return parser;
     }
 
+    /**
+     * @param body          request body, read at most once and only if the {@link HttpRule} maps the body
+     * @param parameters    query parameters
+     * @param pathVariables path variables
+     */
     public record Variable(
-            ByteString body,
+            InputStream body,
             @Nullable Map<String, String[]> parameters,
-            @Nullable Map<String, String> pathVariables) {}
+            @Nullable Map<String, String> pathVariables) {
+
+        public Variable(
+                ByteString body,
+                @Nullable Map<String, String[]> parameters,
+                @Nullable Map<String, String> pathVariables) {
+            this(body.newInput(), parameters, pathVariables);
+        }
+    }
 }
@@ -0,0 +1,336 @@
+package grpcstarter.extensions.transcoding;
+
+import static grpcstarter.extensions.transcoding.Util.buildRequestMessage;
+import static grpcstarter.extensions.transcoding.Util.requestBodyTooLarge;
+import static grpcstarter.extensions.transcoding.Util.trimRight;
+import static io.grpc.MethodDescriptor.MethodType.UNARY;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import grpcstarter.extensions.transcoding.Util.Route;
+import io.grpc.ClientCall;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Executes many unary calls in one HTTP request.
+ *
+ * <p> The request body is a JSON array of {@code {"method": "GET", "path": "/v1/foo?bar=baz", "body": {...}}} items,
+ * each item is resolved through the routes of the transcoder. Items are called concurrently, at most
+ * {@link GrpcTranscodingProperties.Batch#getParallelism()} at a time. The response body is a JSON array of
+ * {@code {"status": 200, "body": {...}}} or {@code {"status": 404, "error": "..."}} results, in the order of the
+ * items.
+ *
+ * <p> Items are routed inside the handler of the batch endpoint, URL-based authorization (e.g. Spring Security
+ * request matchers) only sees the batch path, see {@link GrpcTranscodingProperties.Batch}.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.Batch
+ */
+final class TranscodingBatch {
+
+    private static final JsonMapper om = JsonMapper.builder().build();
+
+    private final GrpcTranscodingProperties.Batch properties;
+    private final Map<String, Route> autoMappingRoutes;
+    private final RouteIndex customRoutes;
+
+    TranscodingBatch(
+            GrpcTranscodingProperties.Batch properties, Map<String, Route> autoMappingRoutes, RouteIndex customRoutes) {
+        this.properties = properties;
+        this.autoMappingRoutes = autoMappingRoutes;
+        this.customRoutes = customRoutes;
+    }
+
+    /**
+     * @param method request http method
+     * @param path   request path
+     * @return true if the request targets the batch endpoint
+     */
+    boolean matches(HttpMethod method, String path) {
+        return HttpMethod.POST.equals(method) && trimRight(properties.getPath(), '/').equals(trimRight(path, '/'));
+    }
+
+    /**
+     * Parse the batch request body.
+     *
+     * @param body request body
+     * @return batch items
+     * @throws ResponseStatusException 400 if the body is not a valid batch request, 413 if the body is too large
+     */
+    List<Item> parse(InputStream body) {
+        Item[] items;
+        try {
+            items = om.readValue(body, Item[].class);
+        } catch (JacksonException e) {
+            if (e.getCause() instanceof LimitedInputStream.LimitExceededException lee) {
+                throw requestBodyTooLarge(lee.getLimit());
+            }
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid batch request: " + e.getOriginalMessage(), e);
+        }
+        if (items == null || Arrays.stream(items).anyMatch(Objects::isNull)) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid batch request: JSON array of items expected");
+        }
+        if (items.length > properties.getMaxItems()) {
+            throw new ResponseStatusException(
+                    BAD_REQUEST, "Batch request exceeds the limit of " + properties.getMaxItems() + " items");
+        }
+        return Arrays.asList(items);
+    }
+
+    /**
+     * Execute the items, at most {@link GrpcTranscodingProperties.Batch#getParallelism()} at a time.
+     *
+     * <p> The returned future never completes exceptionally, failures are reported per item.
+     *
+     * @param items   batch items
+     * @param invoker invokes the unary call of a request
+     * @return outcomes in the order of the items
+     */
+    CompletableFuture<List<Outcome>> execute(
+            List<Item> items, Function<Request, CompletableFuture<Message>> invoker) {
+        var result = new CompletableFuture<List<Outcome>>();
+        if (items.isEmpty()) {
+            result.complete(List.of());
+            return result;
+        }
+        var outcomes = new AtomicReferenceArray<Outcome>(items.size());
+        var next = new AtomicInteger();
+        var remaining = new AtomicInteger(items.size());
+        // Each worker is a loop over the items, calls completed synchronously are handled in place, the loop only
+        // moves to the completing thread when a call completes asynchronously, so the stack never grows with the items
+        var worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < items.size()) {
+                    Request request;
+                    try {
+                        request = toRequest(items.get(i));
+                    } catch (RuntimeException e) {
+                        complete(i, new Outcome(null, null, e));
+                        continue;
+                    }
+                    CompletableFuture<Message> call;
+                    try {
+                        call = invoker.apply(request);
+                    } catch (RuntimeException e) {
+                        call = CompletableFuture.failedFuture(e);
+                    }
+                    // whoever comes second, this loop or the completion callback, continues with the next item
+                    var handoff = new AtomicBoolean();
+                    int index = i;
+                    call.whenComplete((response, error) -> {
+                        complete(index, new Outcome(request.route(), response, unwrap(error)));
+                        if (!handoff.compareAndSet(false, true)) {
+                            run();
+                        }
+                    });
+                    if (handoff.compareAndSet(false, true)) {
+                        return; // completes asynchronously
+                    }
+                }
+            }
+
+            private void complete(int i, Outcome outcome) {
+                outcomes.set(i, outcome);
+                if (remaining.decrementAndGet() == 0) {
+                    var list = new ArrayList<Outcome>(outcomes.length());
+                    for (int j = 0; j < outcomes.length(); j++) {
+                        list.add(outcomes.get(j));
+                    }
+                    result.complete(list);
+                }
+            }
+        };
+        for (int i = 0; i < Math.min(Math.max(properties.getParallelism(), 1), items.size()); i++) {
+            worker.run();
+        }
+        return result;
+    }
+
+    private static @Nullable Throwable unwrap(@Nullable Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Resolve the item through the routes and build the request message.
+     *
+     * @throws ResponseStatusException 404 if no route matches, 400 if the item is invalid
+     */
+    Request toRequest(Item item) {
+        var path = item.path();
+        if (!StringUtils.hasText(path)) {
+            throw new ResponseStatusException(BAD_REQUEST, "Missing path");
+        }
+        var httpMethod = item.method();
+        var method = StringUtils.hasText(httpMethod)
+                ? HttpMethod.valueOf(httpMethod.toUpperCase(Locale.ROOT))
+                : HttpMethod.POST;
+        var uri = UriComponentsBuilder.fromUriString(path).build();
+        var uriPath = uri.getPath();
+        var requestPath = uriPath != null ? uriPath : "";
+
+        Route route = null;
+        Map<String, String> pathVariables = Map.of();
+        if (HttpMethod.POST.equals(method)) {
+            route = autoMappingRoutes.get(trimRight(requestPath, '/'));
+        }
+        if (route == null) {
+            var match = customRoutes.match(method, requestPath);
+            if (match == null) {
+                throw new ResponseStatusException(NOT_FOUND, "No route matches " + method + " " + requestPath);
+            }
+            route = match.route();
+            pathVariables = match.pathVariables();
+        }
+        if (route.invokeMethod().getType() != UNARY) {
+            throw new ResponseStatusException(BAD_REQUEST, "Only unary methods are supported in batch requests");
+        }
+
+        var parameters = new HashMap<String, String[]>();
+        uri.getQueryParams()
+                .forEach((name, values) -> parameters.put(
+                        UriUtils.decode(name, StandardCharsets.UTF_8),
+                        values.stream()
+                                .map(v -> v != null ? UriUtils.decode(v, StandardCharsets.UTF_8) : "")
+                                .toArray(String[]::new)));
+        var json = item.body();
+        var body = json != null && !json.isNull() ? ByteString.copyFromUtf8(json.toString()) : ByteString.EMPTY;
+        var transcoder = Transcoder.create(new Transcoder.Variable(body, parameters, pathVariables));
+        try {
+            return new Request(route, buildRequestMessage(transcoder, route));
+        } catch (InvalidProtocolBufferException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Start the unary call of the request.
+     *
+     * @param call    client call of the request route
+     * @param message request message
+     * @return future of the response message
+     */
+    static CompletableFuture<Message> unaryCall(ClientCall<Object, Object> call, Message message) {
+        var result = new CompletableFuture<Message>();
+        ClientCalls.asyncUnaryCall(call, message, new StreamObserver<>() {
+            @Override
+            public void onNext(Object value) {
+                result.complete((Message) value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                // The response has been delivered by onNext
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Write the results as a JSON array.
+     *
+     * @param results results in the order of the items
+     * @return JSON array
+     */
+    static String toJson(List<Result> results) {
+        var sb = new StringBuilder(results.size() * 64).append('[');
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"status\":").append(result.status());
+            var body = result.body();
+            if (body != null) {
+                sb.append(",\"body\":").append(JsonUtil.toJson(body));
+            }
+            var error = result.error();
+            if (error != null) {
+                sb.append(",\"error\":").append(JsonUtil.toJson(error));
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * @param method HTTP method of the route, default {@code POST}
+     * @param path   request path, may contain a query string
+     * @param body   request body, null if absent
+     */
+    record Item(@Nullable String method, @Nullable String path, @Nullable JsonNode body) {}
+
+    /**
+     * @param route   matched route
+     * @param message request message
+     */
+    record Request(Route route, Message message) {}
+
+    /**
+     * @param route    matched route, null if the item could not be resolved
+     * @param response response message, null if failed
+     * @param error    failure, null if succeeded
+     */
+    record Outcome(@Nullable Route route, @Nullable Message response, @Nullable Throwable error) {}
+
+    /**
+     * @param status HTTP status of the item
+     * @param body   response body, or the body resolved for the failure, null if absent
+     * @param error  error message, null if succeeded
+     */
+    record Result(int status, @Nullable Object body, @Nullable String error) {
+
+        /**
+         * @param outcome successful outcome
+         * @return 200 result with the response body
+         */
+        static Result ok(Outcome outcome) {
+            var route = outcome.route();
+            var response = outcome.response();
+            if (route == null || response == null) {
+                return new Result(HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null);
+            }
+            var transcoder = Transcoder.create(new Transcoder.Variable(ByteString.EMPTY, null, null));
+            return new Result(HttpStatus.OK.value(), transcoder.out(response, route.httpRule()), null);
+        }
+    }
+}
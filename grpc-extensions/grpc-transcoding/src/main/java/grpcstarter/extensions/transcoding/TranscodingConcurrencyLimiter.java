@@ -0,0 +1,147 @@
+package grpcstarter.extensions.transcoding;
+
+import grpcstarter.extensions.transcoding.Util.Route;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Limits the number of in-flight transcoded gRPC calls, globally and per route.
+ *
+ * <p> A permit is taken when the call starts and returned when the call closes, so the limit covers the whole call
+ * for every method type, including streaming calls. Calls over the limit are rejected with 429 and a
+ * {@code Retry-After} header instead of being queued, so a flood on one REST route can't starve the gRPC clients
+ * sharing the same backend.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.ConcurrencyLimit
+ * @since 4.1.0
+ */
+public class TranscodingConcurrencyLimiter {
+
+    private final GrpcTranscodingProperties.ConcurrencyLimit properties;
+
+    private final @Nullable Semaphore global;
+    private final Map<String, Semaphore> routes = new HashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public TranscodingConcurrencyLimiter(GrpcTranscodingProperties.ConcurrencyLimit properties) {
+        this.properties = properties;
+        this.global = properties.getMaxInFlight() > 0 ? new Semaphore(properties.getMaxInFlight()) : null;
+        properties.getRoutes().forEach((method, limit) -> {
+            if (limit != null && limit > 0) {
+                routes.put(method, new Semaphore(limit));
+            }
+        });
+    }
+
+    /**
+     * Limit the call, a permit of the route is taken when the call starts and returned when the call closes.
+     *
+     * @param call  client call
+     * @param route route of the call
+     * @param <ReqT>  request type
+     * @param <RespT> response type
+     * @return limited call, {@link ClientCall#start} throws {@link TranscodingRuntimeException} with 429 if there is
+     * no permit available
+     */
+    <ReqT, RespT> ClientCall<ReqT, RespT> limit(ClientCall<ReqT, RespT> call, Route route) {
+        var routeSemaphore = routes.get(route.invokeMethod().getFullMethodName());
+        if (global == null && routeSemaphore == null) {
+            return call;
+        }
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                if (!tryAcquire(routeSemaphore)) {
+                    rejected.increment();
+                    throw tooManyRequests();
+                }
+                var released = new AtomicBoolean();
+                Runnable release = () -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(routeSemaphore);
+                    }
+                };
+                try {
+                    super.start(
+                            new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                                @Override
+                                public void onClose(Status status, Metadata trailers) {
+                                    release.run();
+                                    super.onClose(status, trailers);
+                                }
+                            },
+                            headers);
+                } catch (RuntimeException e) {
+                    release.run();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return number of calls rejected because of the limits
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of in-flight calls holding a permit
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquire(@Nullable Semaphore routeSemaphore) {
+        if (routeSemaphore != null && !routeSemaphore.tryAcquire()) {
+            return false;
+        }
+        var g = global;
+        if (g != null && !g.tryAcquire()) {
+            if (routeSemaphore != null) {
+                routeSemaphore.release();
+            }
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    private void release(@Nullable Semaphore routeSemaphore) {
+        inFlight.decrementAndGet();
+        var g = global;
+        if (g != null) {
+            g.release();
+        }
+        if (routeSemaphore != null) {
+            routeSemaphore.release();
+        }
+    }
+
+    private TranscodingRuntimeException tooManyRequests() {
+        var headers = new HttpHeaders();
+        long seconds = properties.getRetryAfter().toSeconds();
+        if (properties.getRetryAfter().toNanosPart() > 0) {
+            seconds++; // round up, Retry-After is in seconds
+        }
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        return new TranscodingRuntimeException(
+                HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent transcoding requests", headers);
+    }
+}
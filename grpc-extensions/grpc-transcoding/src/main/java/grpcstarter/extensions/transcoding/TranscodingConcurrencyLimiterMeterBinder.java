@@ -0,0 +1,34 @@
+package grpcstarter.extensions.transcoding;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes {@link TranscodingConcurrencyLimiter} statistics as Micrometer meters.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+public class TranscodingConcurrencyLimiterMeterBinder implements MeterBinder {
+
+    public static final String REJECTED = "grpc.transcoding.requests.rejected";
+    public static final String IN_FLIGHT = "grpc.transcoding.requests.limited.in.flight";
+
+    private final TranscodingConcurrencyLimiter limiter;
+
+    public TranscodingConcurrencyLimiterMeterBinder(TranscodingConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(REJECTED, limiter, TranscodingConcurrencyLimiter::getRejectedCount)
+                .description("Number of transcoding requests rejected with 429 because of the concurrency limits")
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, limiter, TranscodingConcurrencyLimiter::getInFlightCount)
+                .description("Number of in-flight transcoded gRPC calls holding a concurrency permit")
+                .register(registry);
+    }
+}
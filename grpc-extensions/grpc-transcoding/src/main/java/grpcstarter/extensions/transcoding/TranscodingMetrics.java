@@ -0,0 +1,67 @@
+package grpcstarter.extensions.transcoding;
+
+/**
+ * Records per-phase metrics of transcoded calls.
+ *
+ * <p> Each transcoded call is split into phases, see {@link Phase}, so that the cost of the codec can be told apart
+ * from the cost of the backend.
+ *
+ * @author Freeman
+ * @see MicrometerTranscodingMetrics
+ * @since 4.1.0
+ */
+public interface TranscodingMetrics {
+
+    /**
+     * Records nothing, used when metrics are disabled.
+     */
+    TranscodingMetrics NOOP = new TranscodingMetrics() {
+        @Override
+        public void recordDuration(String fullMethodName, Phase phase, long nanos) {}
+
+        @Override
+        public void recordPayloadSize(String fullMethodName, Payload payload, long bytes) {}
+    };
+
+    /**
+     * Record the duration of a phase.
+     *
+     * @param fullMethodName gRPC full method name, e.g. {@code grpc.testing.SimpleService/UnaryRpc}
+     * @param phase          transcoding phase
+     * @param nanos          duration in nanoseconds
+     */
+    void recordDuration(String fullMethodName, Phase phase, long nanos);
+
+    /**
+     * Record the size of a http payload.
+     *
+     * @param fullMethodName gRPC full method name, e.g. {@code grpc.testing.SimpleService/UnaryRpc}
+     * @param payload        request or response
+     * @param bytes          payload size in bytes
+     */
+    void recordPayloadSize(String fullMethodName, Payload payload, long bytes);
+
+    enum Phase {
+        /**
+         * Parse the http request body and bind path variables and query parameters into the gRPC request builder.
+         */
+        PARSE,
+        /**
+         * Build the gRPC request message from the parsed builder.
+         */
+        BUILD,
+        /**
+         * gRPC round trip, from sending the request message to receiving the response message.
+         */
+        CALL,
+        /**
+         * Serialize the gRPC response message into the http response body.
+         */
+        ENCODE
+    }
+
+    enum Payload {
+        REQUEST,
+        RESPONSE
+    }
+}
@@ -0,0 +1,166 @@
+package grpcstarter.extensions.transcoding;
+
+import static io.grpc.MethodDescriptor.MethodType.UNARY;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Metadata;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Coalesces identical concurrent GET transcoded requests into one gRPC call.
+ *
+ * <p> Requests are identical if they have the same route, the same deterministic serialization of the built request
+ * message and the same request headers forwarded to the gRPC call, except for the excluded headers. While a call is
+ * in flight, identical requests wait for its result instead of starting their own call, the result is fanned out to
+ * all waiters. Nothing is kept after the call completes.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.RequestCoalescing
+ * @since 4.1.0
+ */
+public class TranscodingRequestCoalescer {
+
+    private final GrpcTranscodingProperties.RequestCoalescing properties;
+    private final HeaderConverter headerConverter;
+    private final Set<String> excludedHeaders; // lower case
+
+    private final Map<Key, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    public TranscodingRequestCoalescer(
+            GrpcTranscodingProperties.RequestCoalescing properties, HeaderConverter headerConverter) {
+        this.properties = properties;
+        this.headerConverter = headerConverter;
+        this.excludedHeaders = properties.getExcludedHeaders().stream()
+                .map(h -> h.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Create the coalescing key of the request, only GET unary routes are coalesced.
+     *
+     * @param httpMethod     http method of the request
+     * @param route          matched route
+     * @param requestMessage built request message
+     * @param requestHeaders http headers of the request
+     * @return coalescing key, or null if the request is not coalesced
+     */
+    @Nullable Key getKey(HttpMethod httpMethod, Util.Route route, Message requestMessage, HttpHeaders requestHeaders) {
+        if (!HttpMethod.GET.equals(httpMethod) || route.invokeMethod().getType() != UNARY) {
+            return null;
+        }
+        var method = route.invokeMethod().getFullMethodName();
+        var routes = properties.getRoutes();
+        if (!routes.isEmpty() && !routes.contains(method)) {
+            return null;
+        }
+        return new Key(
+                method,
+                UnsafeByteOperations.unsafeWrap(Util.toDeterministicBytes(requestMessage)),
+                getForwardedHeaders(requestHeaders));
+    }
+
+    /**
+     * @return headers forwarded to the gRPC call without the excluded ones, sorted by name
+     */
+    private Map<String, List<String>> getForwardedHeaders(HttpHeaders requestHeaders) {
+        var metadata = headerConverter.toMetadata(requestHeaders);
+        var result = new TreeMap<String, List<String>>();
+        for (var name : metadata.keys()) {
+            if (excludedHeaders.contains(name)) {
+                continue;
+            }
+            var values = new ArrayList<String>();
+            if (name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+                var all = metadata.getAll(Metadata.Key.of(name, Metadata.BINARY_BYTE_MARSHALLER));
+                if (all != null) {
+                    all.forEach(v -> values.add(Base64.getEncoder().encodeToString(v)));
+                }
+            } else {
+                var all = metadata.getAll(Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER));
+                if (all != null) {
+                    all.forEach(values::add);
+                }
+            }
+            result.put(name, values);
+        }
+        return result;
+    }
+
+    /**
+     * Join the in-flight call of the key, or start a new one.
+     *
+     * <p> The returned future is shared by all the waiters, it must not be cancelled.
+     *
+     * @param key  coalescing key
+     * @param call starts the gRPC call
+     * @return result of the call
+     */
+    CompletableFuture<Response> execute(Key key, Supplier<CompletableFuture<Response>> call) {
+        var future = new CompletableFuture<Response>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        try {
+            call.get().whenComplete((response, t) -> {
+                // Remove before completing, requests after completion start a new call
+                inFlight.remove(key, future);
+                if (t != null) {
+                    future.completeExceptionally(t);
+                } else {
+                    future.complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @return number of requests served by the call of another identical request
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of in-flight calls
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @param method       gRPC full method name
+     * @param request      deterministic serialization of the request message
+     * @param headers forwarded request headers without the excluded ones, by lower case name
+     */
+    record Key(String method, ByteString request, Map<String, List<String>> headers) {}
+
+    /**
+     * @param message response message
+     * @param headers response headers, null if not received
+     */
+    record Response(Message message, @Nullable Metadata headers) {}
+}
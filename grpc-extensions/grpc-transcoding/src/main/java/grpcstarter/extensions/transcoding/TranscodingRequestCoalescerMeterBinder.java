@@ -0,0 +1,34 @@
+package grpcstarter.extensions.transcoding;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes {@link TranscodingRequestCoalescer} statistics as Micrometer meters.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+public class TranscodingRequestCoalescerMeterBinder implements MeterBinder {
+
+    public static final String COALESCED = "grpc.transcoding.requests.coalesced";
+    public static final String IN_FLIGHT = "grpc.transcoding.requests.coalescing.in.flight";
+
+    private final TranscodingRequestCoalescer coalescer;
+
+    public TranscodingRequestCoalescerMeterBinder(TranscodingRequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(COALESCED, coalescer, TranscodingRequestCoalescer::getCoalescedCount)
+                .description("Number of transcoding requests served by the gRPC call of an identical request")
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, coalescer, TranscodingRequestCoalescer::getInFlightCount)
+                .description("Number of in-flight gRPC calls that identical transcoding requests can join")
+                .register(registry);
+    }
+}
@@ -0,0 +1,176 @@
+package grpcstarter.extensions.transcoding;
+
+import static io.grpc.MethodDescriptor.MethodType.UNARY;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+/**
+ * Response cache for GET transcoded routes.
+ *
+ * <p> Entries are keyed by the route, the deterministic serialization of the built request message, the configured
+ * request headers and the response format, and hold the already serialized response body, so a hit costs a hash
+ * lookup. Entries expire after the TTL of the route, the least recently used entry is evicted when the cache is full.
+ *
+ * @author Freeman
+ * @see GrpcTranscodingProperties.ResponseCache
+ * @since 4.1.0
+ */
+public class TranscodingResponseCache {
+
+    private final GrpcTranscodingProperties.ResponseCache properties;
+
+    /**
+     * Access ordered, guarded by itself.
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TranscodingResponseCache(GrpcTranscodingProperties.ResponseCache properties) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > properties.getMaximumSize()) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Create the cache key of the request, only GET unary routes with a positive TTL are cacheable.
+     *
+     * @param httpMethod      http method of the request
+     * @param route           matched route
+     * @param requestMessage  built request message
+     * @param requestHeaders  http headers of the request
+     * @param protobuf        whether the response is binary protobuf
+     * @return cache key, or null if the request is not cacheable
+     */
+    @Nullable Key getKey(
+            HttpMethod httpMethod,
+            Util.Route route,
+            Message requestMessage,
+            HttpHeaders requestHeaders,
+            boolean protobuf) {
+        if (!HttpMethod.GET.equals(httpMethod) || getTtl(route) == null) {
+            return null;
+        }
+        return new Key(
+                route.invokeMethod().getFullMethodName(),
+                UnsafeByteOperations.unsafeWrap(Util.toDeterministicBytes(requestMessage)),
+                Util.getHeaderValues(requestHeaders, properties.getKeyHeaders()),
+                protobuf);
+    }
+
+    /**
+     * @param key cache key
+     * @return cached response, or null if absent or expired
+     */
+    @Nullable CachedResponse get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response();
+    }
+
+    /**
+     * @param key      cache key
+     * @param route    route of the response
+     * @param response response to cache
+     */
+    void put(Key key, Util.Route route, CachedResponse response) {
+        var ttl = getTtl(route);
+        if (ttl == null) {
+            return;
+        }
+        var entry = new Entry(response, System.nanoTime() + ttl.toNanos());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted because the cache is full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of entries, including expired entries not removed yet
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private @Nullable Duration getTtl(Util.Route route) {
+        if (route.invokeMethod().getType() != UNARY) {
+            return null;
+        }
+        var routes = properties.getRoutes();
+        var ttl = routes.isEmpty() ? properties.getTtl() : routes.get(route.invokeMethod().getFullMethodName());
+        return ttl != null && ttl.isPositive() ? ttl : null;
+    }
+
+    /**
+     * @param method        gRPC full method name
+     * @param request       deterministic serialization of the request message
+     * @param headerValues  values of the key headers, in the order of the configured key headers
+     * @param protobuf      whether the response is binary protobuf
+     */
+    record Key(String method, ByteString request, List<@Nullable List<String>> headerValues, boolean protobuf) {}
+
+    /**
+     * Serialized transcoded response.
+     *
+     * @param body        serialized response body
+     * @param contentType content type of the body
+     * @param headers     response headers converted from gRPC metadata
+     */
+    record CachedResponse(ByteString body, MediaType contentType, HttpHeaders headers) {}
+
+    private record Entry(CachedResponse response, long expiresAt) {}
+}
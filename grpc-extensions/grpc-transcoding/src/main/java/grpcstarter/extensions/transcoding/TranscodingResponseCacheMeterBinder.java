@@ -0,0 +1,43 @@
+package grpcstarter.extensions.transcoding;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes {@link TranscodingResponseCache} statistics as Micrometer meters.
+ *
+ * @author Freeman
+ * @since 4.1.0
+ */
+public class TranscodingResponseCacheMeterBinder implements MeterBinder {
+
+    public static final String REQUESTS = "grpc.transcoding.response.cache.requests";
+    public static final String EVICTIONS = "grpc.transcoding.response.cache.evictions";
+    public static final String SIZE = "grpc.transcoding.response.cache.size";
+
+    private final TranscodingResponseCache cache;
+
+    public TranscodingResponseCacheMeterBinder(TranscodingResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(REQUESTS, cache, TranscodingResponseCache::getHitCount)
+                .description("Number of transcoding response cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(REQUESTS, cache, TranscodingResponseCache::getMissCount)
+                .description("Number of transcoding response cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder(EVICTIONS, cache, TranscodingResponseCache::getEvictionCount)
+                .description("Number of transcoding responses evicted because the cache is full")
+                .register(registry);
+        Gauge.builder(SIZE, cache, TranscodingResponseCache::size)
+                .description("Number of cached transcoding responses")
+                .register(registry);
+    }
+}
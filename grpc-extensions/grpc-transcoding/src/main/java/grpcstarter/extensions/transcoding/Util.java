@@ -2,15 +2,14 @@ package grpcstarter.extensions.transcoding;
 
 import com.google.api.AnnotationsProto;
 import com.google.api.HttpRule;
-import com.google.api.pathtemplate.PathTemplate;
 import com.google.protobuf.BoolValue;
 import com.google.protobuf.BytesValue;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DoubleValue;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
 import com.google.protobuf.Int64Value;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.StringValue;
 import com.google.protobuf.UInt32Value;
@@ -18,35 +17,42 @@ import com.google.protobuf.UInt64Value;
 import com.google.protobuf.Value;
 import grpcstarter.server.GrpcServerProperties;
 import io.grpc.BindableService;
+import io.grpc.CallOptions;
 import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.ServerMethodDefinition;
 import io.grpc.ServerServiceDefinition;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.protobuf.ProtoFileDescriptorSupplier;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.StringUtils;
 import org.springframework.util.unit.DataSize;
-import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * @author Freeman
@@ -57,6 +63,30 @@ class Util {
 
     public static final String URI_TEMPLATE_VARIABLES_ATTRIBUTE = Util.class + ".matchingPattern";
 
+    /**
+     * Binary protobuf media type, request/response body is encoded by the protobuf wire format.
+     */
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    /**
+     * Same as the default max inbound message size of gRPC.
+     */
+    static final long DEFAULT_MAX_REQUEST_BODY_SIZE = 4L * 1024 * 1024;
+
+    static final String GRPC_TIMEOUT = "grpc-timeout";
+
+    /**
+     * {@code TimeoutValue TimeoutUnit}, the value is a positive integer of at most 8 digits.
+     *
+     * @see <a href="https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-HTTP2.md#requests">gRPC over HTTP2</a>
+     */
+    private static final Pattern GRPC_TIMEOUT_VALUE = Pattern.compile("(\\d{1,8})([HMSmun])");
+
+    /**
+     * Longest timeout representable in nanoseconds, longer timeouts are clamped to it.
+     */
+    static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE);
+
     /**
      * Cache for the default message of the method input type.
      *
@@ -64,14 +94,19 @@ class Util {
      */
     static final Map<String, Message> methodCache = new ConcurrentReferenceHashMap<>();
 
-    private static <T> List<Util.Route<T>> fillRoutes(
-            Map<String, Util.Route<T>> autoMappingRoutes,
-            List<Util.Route<T>> customRoutes,
-            List<ServerServiceDefinition> definitions,
-            BiFunction<HttpMethod, PathTemplate, Predicate<T>> predicateCreator,
+    /**
+     * Fill routes for the given services.
+     *
+     * <p> Methods with {@code google.api.http} option (including {@code additional_bindings}) are compiled into
+     * {@code customRoutes}, other methods are put into {@code autoMappingRoutes} if auto mapping is enabled.
+     */
+    public static void fillRoutes(
+            List<BindableService> services,
+            Map<String, Route> autoMappingRoutes,
+            RouteIndex customRoutes,
             GrpcTranscodingProperties grpcTranscodingProperties,
             List<TranscodingCustomizer> transcodingCustomizers) {
-        for (ServerServiceDefinition ssd : definitions) {
+        for (ServerServiceDefinition ssd : listDefinition(services)) {
             Descriptors.ServiceDescriptor serviceDescriptor = Util.getServiceDescriptor(ssd);
             if (serviceDescriptor == null) {
                 continue;
@@ -92,9 +127,7 @@ class Util {
 
                         boolean hasHttpExtension = methodDescriptor.getOptions().hasExtension(AnnotationsProto.http);
                         if (hasHttpExtension) {
-                            Optional.ofNullable(createRouteWithBindings(
-                                            invokeMethod, methodDescriptor, predicateCreator, transcodingCustomizers))
-                                    .ifPresent(customRoutes::add);
+                            addRouteWithBindings(customRoutes, invokeMethod, methodDescriptor, transcodingCustomizers);
                         } else if (grpcTranscodingProperties.isAutoMapping()) {
                             var httpRule = HttpRule.newBuilder()
                                     .setPost("/" + invokeMethod.getFullMethodName())
@@ -105,12 +138,10 @@ class Util {
                                 throw new IllegalStateException("Auto mapping requires POST method.");
                             }
                             autoMappingRoutes.put(
-                                    httpRule.getPost(),
-                                    new Route<>(httpRule, invokeMethod, methodDescriptor, t -> false, List.of()));
+                                    httpRule.getPost(), new Route(httpRule, invokeMethod, methodDescriptor));
                         }
                     });
         }
-        return customRoutes;
     }
 
     private static HttpRule applyCustomizers(
@@ -124,31 +155,32 @@ class Util {
         return result;
     }
 
-    private static <T> Util.@Nullable Route<T> createRouteWithBindings(
+    private static void addRouteWithBindings(
+            RouteIndex customRoutes,
             MethodDescriptor<?, ?> invokeMethod,
             Descriptors.MethodDescriptor methodDescriptor,
-            BiFunction<HttpMethod, PathTemplate, Predicate<T>> predicateCreator,
             List<TranscodingCustomizer> transcodingCustomizers) {
         var httpRule = methodDescriptor.getOptions().getExtension(AnnotationsProto.http);
-        List<Predicate<T>> additionalPredicates = new ArrayList<>();
+
+        var rule = applyCustomizers(transcodingCustomizers, httpRule, methodDescriptor);
+        HttpMethod mainMethod = extractHttpMethod(rule);
+        String mainPath = extractPath(rule);
+        if (mainMethod == null || mainPath == null) {
+            return;
+        }
+
+        var route = new Route(rule, invokeMethod, methodDescriptor);
+        customRoutes.add(mainMethod, mainPath, route);
+
         // Process only one level of additional_bindings
-        for (HttpRule rule : httpRule.getAdditionalBindingsList()) {
-            var additionalRule = applyCustomizers(transcodingCustomizers, rule, methodDescriptor);
+        for (HttpRule additionalBinding : httpRule.getAdditionalBindingsList()) {
+            var additionalRule = applyCustomizers(transcodingCustomizers, additionalBinding, methodDescriptor);
             HttpMethod method = extractHttpMethod(additionalRule);
             String path = extractPath(additionalRule);
             if (method != null && path != null) {
-                additionalPredicates.add(predicateCreator.apply(method, PathTemplate.create(path)));
+                customRoutes.add(method, path, route);
             }
         }
-
-        var rule = applyCustomizers(transcodingCustomizers, httpRule, methodDescriptor);
-        HttpMethod mainMethod = extractHttpMethod(rule);
-        String mainPath = extractPath(rule);
-        if (mainMethod != null && mainPath != null) {
-            Predicate<T> mainPredicate = predicateCreator.apply(mainMethod, PathTemplate.create(mainPath));
-            return new Route<>(rule, invokeMethod, methodDescriptor, mainPredicate, additionalPredicates);
-        }
-        return null;
     }
 
     private static @Nullable HttpMethod extractHttpMethod(HttpRule httpRule) {
@@ -181,36 +213,6 @@ class Util {
         return services.stream().map(BindableService::bindService).toList();
     }
 
-    public static List<Util.Route<ServerRequest>> fillRoutes(
-            List<BindableService> services,
-            Map<String, Route<ServerRequest>> autoMappingRoutes,
-            List<Util.Route<ServerRequest>> customRoutes,
-            GrpcTranscodingProperties grpcTranscodingProperties,
-            List<TranscodingCustomizer> transcodingCustomizers) {
-        return fillRoutes(
-                autoMappingRoutes,
-                customRoutes,
-                listDefinition(services),
-                ServletPredicate::new,
-                grpcTranscodingProperties,
-                transcodingCustomizers);
-    }
-
-    public static List<Util.Route<org.springframework.web.reactive.function.server.ServerRequest>> getReactiveRoutes(
-            List<BindableService> services,
-            Map<String, Route<org.springframework.web.reactive.function.server.ServerRequest>> autoMappingRoutes,
-            List<Util.Route<org.springframework.web.reactive.function.server.ServerRequest>> customRoutes,
-            GrpcTranscodingProperties grpcTranscodingProperties,
-            List<TranscodingCustomizer> transcodingCustomizers) {
-        return fillRoutes(
-                autoMappingRoutes,
-                customRoutes,
-                listDefinition(services),
-                ReactivePredicate::new,
-                grpcTranscodingProperties,
-                transcodingCustomizers);
-    }
-
     static String snakeToPascal(String input) {
         if (input == null || input.isEmpty()) return input;
 
@@ -300,17 +302,127 @@ class Util {
         return channelBuilder;
     }
 
-    public static Message buildRequestMessage(Transcoder transcoder, Route<?> route)
-            throws InvalidProtocolBufferException {
+    /**
+     * Get the max size of the HTTP request body, falls back to the max inbound message size of the gRPC server.
+     *
+     * @param grpcTranscodingProperties transcoding properties
+     * @param grpcServerProperties      server properties
+     * @return max number of bytes
+     * @see GrpcTranscodingProperties#getMaxRequestBodySize()
+     */
+    static long getMaxRequestBodySize(
+            GrpcTranscodingProperties grpcTranscodingProperties, GrpcServerProperties grpcServerProperties) {
+        var size = grpcTranscodingProperties.getMaxRequestBodySize();
+        if (size == null) {
+            size = grpcServerProperties.getMaxInboundMessageSize();
+        }
+        return size != null ? size.toBytes() : DEFAULT_MAX_REQUEST_BODY_SIZE;
+    }
+
+    /**
+     * Get the call options of the request, with the deadline derived from the timeout header or the route timeout.
+     *
+     * @param deadline deadline options
+     * @param route    matched route
+     * @param headers  http headers of the request
+     * @return call options
+     * @throws ResponseStatusException 400 if the timeout header is invalid
+     * @see GrpcTranscodingProperties.Deadline
+     */
+    static CallOptions getCallOptions(GrpcTranscodingProperties.Deadline deadline, Route route, HttpHeaders headers) {
+        var timeout = getTimeout(deadline, route, headers);
+        if (timeout == null) {
+            return CallOptions.DEFAULT;
+        }
+        return CallOptions.DEFAULT.withDeadlineAfter(clamp(timeout).toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static @Nullable Duration getTimeout(
+            GrpcTranscodingProperties.Deadline deadline, Route route, HttpHeaders headers) {
+        var header = deadline.getHeader();
+        var value = StringUtils.hasText(header) ? headers.getFirst(header) : null;
+        if (header != null && StringUtils.hasText(value)) {
+            var timeout = parseTimeout(header, value.trim());
+            var maxTimeout = deadline.getMaxTimeout();
+            return maxTimeout != null && timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+        }
+        var routeTimeout = deadline.getRoutes().get(route.invokeMethod().getFullMethodName());
+        return routeTimeout != null ? routeTimeout : deadline.getDefaultTimeout();
+    }
+
+    /**
+     * Parse the timeout header value.
+     *
+     * @param header header name
+     * @param value  header value
+     * @return timeout, at most {@link #MAX_TIMEOUT}
+     * @throws ResponseStatusException 400 if the value is invalid
+     */
+    static Duration parseTimeout(String header, String value) {
+        try {
+            Duration timeout;
+            if (GRPC_TIMEOUT.equalsIgnoreCase(header)) {
+                var matcher = GRPC_TIMEOUT_VALUE.matcher(value);
+                if (!matcher.matches()) {
+                    throw new IllegalArgumentException("Invalid timeout: " + value);
+                }
+                long amount = Long.parseLong(matcher.group(1));
+                timeout = switch (matcher.group(2).charAt(0)) {
+                    case 'H' -> Duration.ofHours(amount);
+                    case 'M' -> Duration.ofMinutes(amount);
+                    case 'S' -> Duration.ofSeconds(amount);
+                    case 'm' -> Duration.ofMillis(amount);
+                    case 'u' -> Duration.ofNanos(amount * 1000);
+                    case 'n' -> Duration.ofNanos(amount);
+                    default -> throw new IllegalArgumentException("Unknown timeout unit: " + value);
+                };
+            } else {
+                timeout = DurationStyle.detectAndParse(value, ChronoUnit.MILLIS);
+            }
+            if (timeout.isNegative()) {
+                throw new IllegalArgumentException("Negative timeout: " + value);
+            }
+            return clamp(timeout);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + header + " header: " + value, e);
+        }
+    }
+
+    private static Duration clamp(Duration timeout) {
+        return timeout.compareTo(MAX_TIMEOUT) > 0 ? MAX_TIMEOUT : timeout;
+    }
+
+    /**
+     * @param limit max number of bytes
+     * @return 413 exception for a request body exceeding the limit
+     */
+    static ResponseStatusException requestBodyTooLarge(long limit) {
+        return new ResponseStatusException(
+                HttpStatus.CONTENT_TOO_LARGE, "Request body exceeds the limit of " + limit + " bytes");
+    }
+
+    public static Message buildRequestMessage(Transcoder transcoder, Route route) throws IOException {
+        return parseRequestMessage(transcoder, route).build();
+    }
+
+    /**
+     * Parse the request body and bind path variables and query parameters, the message is not built yet.
+     *
+     * @param transcoder transcoder of the request
+     * @param route      matched route
+     * @return request message builder
+     * @throws IOException if the request body can't be read or parsed
+     */
+    static Message.Builder parseRequestMessage(Transcoder transcoder, Route route) throws IOException {
         Message.Builder messageBuilder = methodCache
                 .computeIfAbsent(
                         route.methodDescriptor().getInputType().getFullName(),
                         k -> getDefaultMessage(route.methodDescriptor().getInputType()))
                 .toBuilder();
 
-        transcoder.into(messageBuilder, route.httpRule());
+        transcoder.into(messageBuilder, route.bindingPlan());
 
-        return messageBuilder.build();
+        return messageBuilder;
     }
 
     public static void shutdown(Channel channel, Duration timeout) {
@@ -344,6 +456,118 @@ class Util {
         }
     }
 
+    /**
+     * Check if the content type is {@link #APPLICATION_PROTOBUF}.
+     *
+     * @param contentType content type of the request
+     * @return true if the request body is binary protobuf
+     */
+    public static boolean isProtobuf(@Nullable MediaType contentType) {
+        return contentType != null && APPLICATION_PROTOBUF.equalsTypeAndSubtype(contentType);
+    }
+
+    /**
+     * Check if the client explicitly accepts {@link #APPLICATION_PROTOBUF}, wildcards don't count.
+     *
+     * @param accept accepted media types of the request
+     * @return true if the response body should be binary protobuf
+     */
+    public static boolean acceptsProtobuf(List<MediaType> accept) {
+        for (MediaType mediaType : accept) {
+            if (APPLICATION_PROTOBUF.equalsTypeAndSubtype(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the client explicitly accepts {@link MediaType#APPLICATION_NDJSON}, wildcards don't count.
+     *
+     * @param accept accepted media types of the request
+     * @return true if the server streaming response should be written as NDJSON
+     */
+    public static boolean acceptsNdjson(List<MediaType> accept) {
+        for (MediaType mediaType : accept) {
+            if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serialize the message deterministically, equal messages (including map fields) produce equal bytes.
+     *
+     * @param message protobuf message
+     * @return serialized bytes
+     */
+    static byte[] toDeterministicBytes(Message message) {
+        var bytes = new byte[message.getSerializedSize()];
+        var cos = CodedOutputStream.newInstance(bytes);
+        cos.useDeterministicSerialization();
+        try {
+            message.writeTo(cos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the values of the headers, used as a part of request keys.
+     *
+     * @param headers http headers of the request
+     * @param names   header names
+     * @return header values in the order of the names, null if the header is absent
+     */
+    static List<@Nullable List<String>> getHeaderValues(HttpHeaders headers, List<String> names) {
+        var result = new ArrayList<@Nullable List<String>>(names.size());
+        for (var name : names) {
+            result.add(headers.get(name));
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@code response_body} field of the route if it is a singular {@code bytes} field.
+     *
+     * @param route route
+     * @return response body field, or null if not a singular bytes field
+     */
+    static Descriptors.@Nullable FieldDescriptor getBytesResponseBodyField(Route route) {
+        var responseBody = route.httpRule().getResponseBody();
+        if (responseBody.isBlank()) {
+            return null;
+        }
+        var field = route.methodDescriptor().getOutputType().findFieldByName(responseBody);
+        if (field == null || field.isRepeated() || field.getType() != Descriptors.FieldDescriptor.Type.BYTES) {
+            return null;
+        }
+        return field;
+    }
+
+    /**
+     * Get the length of a raw bytes streaming response from the response metadata.
+     *
+     * @param headers response metadata
+     * @param key     metadata key of the content length
+     * @return content length, or null if absent or not a valid length
+     * @see GrpcTranscodingProperties#getRawBytesContentLengthKey()
+     */
+    static @Nullable Long getContentLength(@Nullable Metadata headers, String key) {
+        var value = headers != null ? headers.get(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER)) : null;
+        if (value == null) {
+            return null;
+        }
+        try {
+            long length = Long.parseLong(value.trim());
+            return length >= 0 ? length : null;
+        } catch (NumberFormatException e) {
+            return null; // Not a valid content length, use chunked encoding
+        }
+    }
+
     /**
      * Check if the protobuf message is a simple value.
      *
@@ -376,28 +600,6 @@ class Util {
                 || BytesValue.class.isAssignableFrom(clz);
     }
 
-    private static boolean isMatch(
-            HttpMethod requestMethod,
-            HttpMethod httpMethod,
-            String path,
-            PathTemplate pathTemplate,
-            Map<String, Object> attributes) {
-        if (!Objects.equals(requestMethod, httpMethod)) return false;
-
-        path = trim(path, '/');
-        if (path.contains(":") && !pathTemplate.endsWithCustomVerb()) {
-            return false;
-        }
-
-        Map<String, String> result = pathTemplate.match(path);
-        if (result == null) {
-            return false;
-        }
-
-        attributes.put(URI_TEMPLATE_VARIABLES_ATTRIBUTE, result);
-        return true;
-    }
-
     static String trimRight(String str, char c) {
         if (str == null || str.isEmpty()) {
             return str;
@@ -424,27 +626,18 @@ class Util {
         return str.substring(start, end);
     }
 
-    record Route<T>(
+    record Route(
             HttpRule httpRule,
             MethodDescriptor<?, ?> invokeMethod,
             Descriptors.MethodDescriptor methodDescriptor,
-            Predicate<T> predicate,
-            List<Predicate<T>> additionalPredicates) {}
-
-    record ServletPredicate(HttpMethod httpMethod, PathTemplate pathTemplate) implements Predicate<ServerRequest> {
-
-        @Override
-        public boolean test(ServerRequest request) {
-            return isMatch(request.method(), httpMethod, request.path(), pathTemplate, request.attributes());
-        }
-    }
-
-    record ReactivePredicate(HttpMethod httpMethod, PathTemplate pathTemplate)
-            implements Predicate<org.springframework.web.reactive.function.server.ServerRequest> {
-
-        @Override
-        public boolean test(org.springframework.web.reactive.function.server.ServerRequest request) {
-            return isMatch(request.method(), httpMethod, request.path(), pathTemplate, request.attributes());
+            BindingPlan bindingPlan) {
+
+        Route(HttpRule httpRule, MethodDescriptor<?, ?> invokeMethod, Descriptors.MethodDescriptor methodDescriptor) {
+            this(
+                    httpRule,
+                    invokeMethod,
+                    methodDescriptor,
+                    BindingPlan.create(methodDescriptor.getInputType(), httpRule));
         }
     }
 }
@@ -0,0 +1,49 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.grpc.Metadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * {@link DefaultHeaderConverter} tester.
+ */
+class DefaultHeaderConverterTest {
+
+    final DefaultHeaderConverter converter = new DefaultHeaderConverter();
+
+    @Test
+    void testToMetadata() {
+        var headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+        headers.add(HttpHeaders.AUTHORIZATION, "Bearer token");
+        headers.add("X-Custom", "a");
+        headers.add("X-Custom", "b");
+
+        // twice, the second conversion uses the cached keys
+        for (int i = 0; i < 2; i++) {
+            var metadata = converter.toMetadata(headers);
+
+            assertThat(metadata.keys()).containsExactlyInAnyOrder("authorization", "x-custom");
+            assertThat(metadata.getAll(Metadata.Key.of("x-custom", Metadata.ASCII_STRING_MARSHALLER)))
+                    .containsExactly("a", "b");
+        }
+    }
+
+    @Test
+    void testToHttpHeaders() {
+        var metadata = new Metadata();
+        metadata.put(Metadata.Key.of("content-type", Metadata.ASCII_STRING_MARSHALLER), "application/grpc");
+        metadata.put(Metadata.Key.of("grpc-status", Metadata.ASCII_STRING_MARSHALLER), "0");
+        metadata.put(Metadata.Key.of("x-bin", Metadata.BINARY_BYTE_MARSHALLER), new byte[] {1});
+        metadata.put(Metadata.Key.of("x-custom", Metadata.ASCII_STRING_MARSHALLER), "a");
+
+        var headers = converter.toHttpHeaders(metadata);
+
+        assertThat(headers.get("x-custom")).containsExactly("a");
+        assertThat(headers.get(HttpHeaders.CONTENT_TYPE)).isNull();
+        assertThat(headers.get("grpc-status")).isNull();
+        assertThat(headers.get("x-bin")).isNull();
+    }
+}
@@ -0,0 +1,84 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import transcoding.SimpleServiceGrpc;
+import transcoding.TranscoderTest.SimpleRequest;
+import transcoding.TranscoderTest.SimpleResponse;
+
+/**
+ * {@link DemandDrivenResponseObserver} tester.
+ */
+class DemandDrivenResponseObserverTest {
+
+    static final int TOTAL = 100;
+    static final int PREFETCH = 4;
+
+    final AtomicInteger sent = new AtomicInteger();
+    final DirectDispatchChannel channel = DirectDispatchChannel.create(
+            new GrpcServerProperties(), List.of(new FlowControlledServiceImpl()), List.of(), List.of());
+
+    @AfterEach
+    void destroy() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSlowSubscriberLimitsRequestsToPrefetch() {
+        ClientCall<?, ?> call = channel.newCall(SimpleServiceGrpc.getServerStreamingRpcMethod(), CallOptions.DEFAULT);
+        var flux = DemandDrivenResponseObserver.asFlux(
+                (ClientCall<Object, Object>) call, SimpleRequest.getDefaultInstance(), PREFETCH, o -> o);
+
+        StepVerifier.create(flux, 0)
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(200))
+                // the server sends only what the slow subscriber's prefetch asked for
+                .then(() -> assertThat(sent.get()).isBetween(1, PREFETCH))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(200))
+                .then(() -> assertThat(sent.get()).isBetween(2, PREFETCH))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(TOTAL - 2)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(sent).hasValue(TOTAL);
+    }
+
+    /**
+     * Sends only while the transport is ready, i.e. as many messages as the client requested.
+     */
+    class FlowControlledServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase {
+
+        @Override
+        public void serverStreamingRpc(SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            var stream = (ServerCallStreamObserver<SimpleResponse>) responseObserver;
+            var next = new AtomicInteger();
+            stream.setOnReadyHandler(() -> {
+                while (stream.isReady() && next.get() < TOTAL) {
+                    stream.onNext(SimpleResponse.newBuilder()
+                            .setResponseMessage(String.valueOf(next.getAndIncrement()))
+                            .build());
+                    sent.incrementAndGet();
+                }
+                if (next.compareAndSet(TOTAL, TOTAL + 1)) {
+                    stream.onCompleted();
+                }
+            });
+        }
+    }
+}
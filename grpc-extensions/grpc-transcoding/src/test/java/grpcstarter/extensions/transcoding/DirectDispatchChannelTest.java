@@ -0,0 +1,96 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import grpcstarter.server.GrpcServerCustomizer;
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import transcoding.SimpleServiceGrpc;
+import transcoding.TranscoderTest.SimpleRequest;
+import transcoding.TranscoderTest.SimpleResponse;
+
+/**
+ * {@link DirectDispatchChannel} tester.
+ */
+class DirectDispatchChannelTest {
+
+    final AtomicInteger intercepted = new AtomicInteger();
+    final DirectDispatchChannel channel;
+
+    DirectDispatchChannelTest() {
+        var properties = new GrpcServerProperties();
+        properties.setMaxInboundMetadataSize(DataSize.ofBytes(512));
+        GrpcServerCustomizer customizer = sb -> sb.intercept(new CountingInterceptor());
+        channel = DirectDispatchChannel.create(
+                properties, List.of(new SimpleServiceImpl()), List.of(), List.of(customizer));
+    }
+
+    @AfterEach
+    void shutdown() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    void testConfiguredLikeGrpcServer() {
+        var stub = SimpleServiceGrpc.newBlockingStub(channel);
+
+        // customizers are applied
+        var response = stub.unaryRpc(SimpleRequest.newBuilder().setRequestMessage("World").build());
+        assertThat(response.getResponseMessage()).isEqualTo("Hello World");
+        assertThat(intercepted).hasValue(1);
+
+        // inbound metadata size limit is applied
+        var headers = new Metadata();
+        headers.put(Metadata.Key.of("x-large", Metadata.ASCII_STRING_MARSHALLER), "a".repeat(1024));
+        var largeHeaderStub = stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+        assertThatExceptionOfType(StatusRuntimeException.class)
+                .isThrownBy(() -> largeHeaderStub.unaryRpc(SimpleRequest.getDefaultInstance()))
+                .satisfies(e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+    }
+
+    @Test
+    void testProviderSharesChannel() {
+        var provider = new DirectDispatchChannel.Provider(
+                new GrpcServerProperties(), List.of(new SimpleServiceImpl()), List.of(), List.of());
+
+        var shared = provider.getChannel();
+        assertThat(provider.getChannel()).isSameAs(shared);
+
+        provider.destroy();
+        assertThat(shared.isShutdown()).isTrue();
+    }
+
+    class CountingInterceptor implements ServerInterceptor {
+
+        @Override
+        public <I, O> ServerCall.Listener<I> interceptCall(
+                ServerCall<I, O> call, Metadata headers, ServerCallHandler<I, O> next) {
+            intercepted.incrementAndGet();
+            return next.startCall(call, headers);
+        }
+    }
+
+    static class SimpleServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase {
+
+        @Override
+        public void unaryRpc(SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            responseObserver.onNext(SimpleResponse.newBuilder()
+                    .setResponseMessage("Hello " + request.getRequestMessage())
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+}
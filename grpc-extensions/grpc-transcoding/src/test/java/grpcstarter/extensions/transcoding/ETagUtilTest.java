@@ -0,0 +1,48 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.grpc.Metadata;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import transcoding.TranscoderTest;
+
+/**
+ * {@link ETagUtil} tester.
+ */
+class ETagUtilTest {
+
+    @Test
+    void testXxHash64() {
+        assertThat(ETagUtil.xxHash64(new byte[0], 0)).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(ETagUtil.xxHash64("abc".getBytes(StandardCharsets.UTF_8), 0)).isEqualTo(0x44BC2CF5AD770999L);
+    }
+
+    @Test
+    void testGetETag() {
+        var message =
+                TranscoderTest.SimpleResponse.newBuilder().setResponseMessage("Hello").build();
+
+        var etag = ETagUtil.getETag(null, null, message, false);
+        assertThat(etag).matches("\"[0-9a-f]{16}\"");
+        assertThat(ETagUtil.getETag(null, null, message.toBuilder().build(), false)).isEqualTo(etag);
+        assertThat(ETagUtil.getETag(null, null, message, true)).isNotEqualTo(etag);
+        assertThat(ETagUtil.getETag(null, null, message.toBuilder().setResponseMessage("Hi").build(), false))
+                .isNotEqualTo(etag);
+
+        var headers = new Metadata();
+        headers.put(Metadata.Key.of("x-etag", Metadata.ASCII_STRING_MARSHALLER), "v1");
+        assertThat(ETagUtil.getETag(headers, "x-etag", message, false)).isEqualTo("\"v1\"");
+        assertThat(ETagUtil.getETag(headers, "x-version", message, false)).isEqualTo(etag);
+    }
+
+    @Test
+    void testMatches() {
+        assertThat(ETagUtil.matches(List.of(), "\"a\"")).isFalse();
+        assertThat(ETagUtil.matches(List.of("\"a\""), "\"a\"")).isTrue();
+        assertThat(ETagUtil.matches(List.of("\"b\"", "W/\"a\""), "\"a\"")).isTrue();
+        assertThat(ETagUtil.matches(List.of("*"), "\"a\"")).isTrue();
+        assertThat(ETagUtil.matches(List.of("\"b\""), "\"a\"")).isFalse();
+    }
+}
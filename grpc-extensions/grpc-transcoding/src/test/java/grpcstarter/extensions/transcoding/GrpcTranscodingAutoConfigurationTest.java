@@ -3,7 +3,10 @@ package grpcstarter.extensions.transcoding;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import grpcstarter.server.GrpcServerAutoConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Objects;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.boot.WebApplicationType;
@@ -11,6 +14,7 @@ import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.ssl.SslAutoConfiguration;
 import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
 import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 
 /**
  * {@link GrpcTranscodingAutoConfiguration} tester.
@@ -85,4 +89,49 @@ class GrpcTranscodingAutoConfigurationTest {
                     .run(context -> assertThat(context).doesNotHaveBean(GrpcTranscodingAutoConfiguration.class));
         }
     }
+
+    @Test
+    void testMetricsDisabledByDefault() {
+        servletRunner
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withPropertyValues("grpc.server.port=0")
+                .run(context -> assertThat(context).doesNotHaveBean(TranscodingMetrics.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testMetrics(boolean enabled) {
+        servletRunner
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withPropertyValues("grpc.server.port=0")
+                .withPropertyValues("grpc.transcoding.metrics.enabled=" + enabled)
+                .run(context -> {
+                    if (enabled) {
+                        assertThat(context).hasSingleBean(MicrometerTranscodingMetrics.class);
+                    } else {
+                        assertThat(context).doesNotHaveBean(TranscodingMetrics.class);
+                    }
+                    assertThat(context).hasSingleBean(ServletTranscoder.class);
+                });
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testSharedPort(boolean enabled) {
+        servletRunner
+                .withPropertyValues("grpc.server.port=0")
+                .withPropertyValues("grpc.transcoding.shared-port.enabled=" + enabled)
+                .run(context -> {
+                    var filters = context.getBeansOfType(FilterRegistrationBean.class).values().stream()
+                            .map(FilterRegistrationBean::getFilter)
+                            .filter(SharedPortGrpcFilter.class::isInstance)
+                            .toList();
+                    assertThat(filters).hasSize(enabled ? 1 : 0);
+                });
+
+        reactiveRunner
+                .withPropertyValues("grpc.server.port=0")
+                .withPropertyValues("grpc.transcoding.shared-port.enabled=" + enabled)
+                .run(context -> assertThat(context).doesNotHaveBean(FilterRegistrationBean.class));
+    }
 }
@@ -0,0 +1,259 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import grpcstarter.server.GrpcServerProperties;
+import io.grpc.stub.StreamObserver;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import transcoding.SimpleServiceGrpc;
+import transcoding.TranscoderTest.SimpleRequest;
+import transcoding.TranscoderTest.SimpleResponse;
+
+/**
+ * {@link GrpcWebFilter} tester.
+ */
+class GrpcWebFilterTest {
+
+    final DirectDispatchChannel channel = DirectDispatchChannel.create(
+            new GrpcServerProperties(), List.of(new SimpleServiceImpl()), List.of(), List.of());
+    final GrpcWebFilter filter = new GrpcWebFilter(
+            List.of(new SimpleServiceImpl()),
+            channel,
+            new DefaultHeaderConverter(),
+            new GrpcTranscodingProperties(),
+            new GrpcServerProperties());
+
+    @AfterEach
+    void destroy() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    void testUnary() throws Exception {
+        var response = call(
+                "/transcoding.SimpleService/UnaryRpc",
+                "application/grpc-web+proto",
+                frame(SimpleRequest.newBuilder().setRequestMessage("World").build().toByteArray()));
+
+        assertThat(response.getContentType()).isEqualTo("application/grpc-web+proto");
+        var frames = frames(response.getContentAsByteArray());
+        assertThat(frames).hasSize(2);
+        assertThat(SimpleResponse.parseFrom(frames.get(0)).getResponseMessage()).isEqualTo("Hello World");
+        assertThat(new String(frames.get(1), StandardCharsets.US_ASCII)).contains("grpc-status:0");
+    }
+
+    @Test
+    void testServerStreamingTextMode() throws Exception {
+        var body = Base64.getEncoder()
+                .encode(frame(SimpleRequest.newBuilder()
+                        .setRequestMessage("World")
+                        .build()
+                        .toByteArray()));
+        var response = call("/transcoding.SimpleService/ServerStreamingRpc", "application/grpc-web-text", body);
+
+        assertThat(response.getContentType()).isEqualTo("application/grpc-web-text+proto");
+        var frames = frames(GrpcWebFilter.decodeBase64(response.getContentAsByteArray()));
+        assertThat(frames).hasSize(3);
+        assertThat(SimpleResponse.parseFrom(frames.get(0)).getResponseMessage()).isEqualTo("Hello World 0");
+        assertThat(SimpleResponse.parseFrom(frames.get(1)).getResponseMessage()).isEqualTo("Hello World 1");
+        assertThat(new String(frames.get(2), StandardCharsets.US_ASCII)).contains("grpc-status:0");
+    }
+
+    @Test
+    void testRequestBodyTooLarge() throws Exception {
+        var properties = new GrpcTranscodingProperties();
+        properties.setMaxRequestBodySize(DataSize.ofBytes(16));
+        var limited = new GrpcWebFilter(
+                List.of(new SimpleServiceImpl()),
+                channel,
+                new DefaultHeaderConverter(),
+                properties,
+                new GrpcServerProperties());
+
+        var request = new MockHttpServletRequest("POST", "/transcoding.SimpleService/UnaryRpc");
+        request.setContentType("application/grpc-web");
+        request.setContent(frame(SimpleRequest.newBuilder()
+                .setRequestMessage("a".repeat(100))
+                .build()
+                .toByteArray()));
+        var response = new MockHttpServletResponse();
+        limited.doFilter(request, response, new MockFilterChain());
+
+        var frames = frames(response.getContentAsByteArray());
+        assertThat(frames).hasSize(1);
+        assertThat(new String(frames.get(0), StandardCharsets.US_ASCII)).contains("grpc-status:8");
+    }
+
+    @Test
+    void testTextModeLimitAppliesToDecodedFrame() throws Exception {
+        var properties = new GrpcTranscodingProperties();
+        properties.setMaxRequestBodySize(DataSize.ofBytes(16));
+        var limited = newFilter(properties);
+
+        // 16 bytes frame, 24 base64 characters
+        var fits = frame(SimpleRequest.newBuilder()
+                .setRequestMessage("a".repeat(9))
+                .build()
+                .toByteArray());
+        var response = call(limited, "application/grpc-web-text", Base64.getEncoder().encode(fits));
+        var frames = frames(GrpcWebFilter.decodeBase64(response.getContentAsByteArray()));
+        assertThat(frames).hasSize(2);
+        assertThat(new String(frames.get(1), StandardCharsets.US_ASCII)).contains("grpc-status:0");
+
+        var tooLarge = frame(SimpleRequest.newBuilder()
+                .setRequestMessage("a".repeat(10))
+                .build()
+                .toByteArray());
+        response = call(limited, "application/grpc-web-text", Base64.getEncoder().encode(tooLarge));
+        frames = frames(GrpcWebFilter.decodeBase64(response.getContentAsByteArray()));
+        assertThat(frames).hasSize(1);
+        assertThat(new String(frames.get(0), StandardCharsets.US_ASCII)).contains("grpc-status:8");
+    }
+
+    @Test
+    void testCrossOrigin() throws Exception {
+        var properties = new GrpcTranscodingProperties();
+        properties.getGrpcWeb().getCors().setAllowedOrigins(List.of("https://example.com"));
+        var cors = newFilter(properties);
+
+        var request = new MockHttpServletRequest("POST", "/transcoding.SimpleService/UnaryRpc");
+        request.setContentType("application/grpc-web+proto");
+        request.addHeader(HttpHeaders.ORIGIN, "https://example.com");
+        request.setContent(frame(SimpleRequest.newBuilder().setRequestMessage("World").build().toByteArray()));
+        var response = new MockHttpServletResponse();
+        cors.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN)).isEqualTo("https://example.com");
+        assertThat(response.getHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS))
+                .contains("grpc-status")
+                .contains("grpc-message");
+        var frames = frames(response.getContentAsByteArray());
+        assertThat(frames).hasSize(2);
+        assertThat(SimpleResponse.parseFrom(frames.get(0)).getResponseMessage()).isEqualTo("Hello World");
+
+        // preflight
+        var preflight = new MockHttpServletRequest("OPTIONS", "/transcoding.SimpleService/UnaryRpc");
+        preflight.addHeader(HttpHeaders.ORIGIN, "https://example.com");
+        preflight.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST");
+        preflight.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "content-type,x-grpc-web");
+        var chain = new MockFilterChain();
+        response = new MockHttpServletResponse();
+        cors.doFilter(preflight, response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN)).isEqualTo("https://example.com");
+        assertThat(response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS)).isEqualTo("POST");
+
+        // other origin
+        request = new MockHttpServletRequest("POST", "/transcoding.SimpleService/UnaryRpc");
+        request.setContentType("application/grpc-web+proto");
+        request.addHeader(HttpHeaders.ORIGIN, "https://other.com");
+        request.setContent(frame(new byte[0]));
+        response = new MockHttpServletResponse();
+        cors.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(403);
+        assertThat(response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN)).isNull();
+    }
+
+    @Test
+    void testMethodNotFound() throws Exception {
+        var response = call("/transcoding.SimpleService/NotFound", "application/grpc-web", frame(new byte[0]));
+
+        var frames = frames(response.getContentAsByteArray());
+        assertThat(frames).hasSize(1);
+        assertThat(new String(frames.get(0), StandardCharsets.US_ASCII)).contains("grpc-status:12");
+    }
+
+    @Test
+    void testNotGrpcWeb() throws Exception {
+        var request = new MockHttpServletRequest("POST", "/transcoding.SimpleService/UnaryRpc");
+        request.setContentType("application/json");
+        var chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    private GrpcWebFilter newFilter(GrpcTranscodingProperties properties) {
+        return new GrpcWebFilter(
+                List.of(new SimpleServiceImpl()),
+                channel,
+                new DefaultHeaderConverter(),
+                properties,
+                new GrpcServerProperties());
+    }
+
+    private static MockHttpServletResponse call(GrpcWebFilter filter, String contentType, byte[] body)
+            throws Exception {
+        var request = new MockHttpServletRequest("POST", "/transcoding.SimpleService/UnaryRpc");
+        request.setContentType(contentType);
+        request.setContent(body);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse call(String path, String contentType, byte[] body) throws Exception {
+        var request = new MockHttpServletRequest("POST", path);
+        request.setContentType(contentType);
+        request.setContent(body);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static byte[] frame(byte[] message) {
+        return ByteBuffer.allocate(5 + message.length)
+                .put((byte) 0)
+                .putInt(message.length)
+                .put(message)
+                .array();
+    }
+
+    private static List<byte[]> frames(byte[] body) {
+        var result = new ArrayList<byte[]>();
+        var buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            buffer.get(); // flag
+            var frame = new byte[buffer.getInt()];
+            buffer.get(frame);
+            result.add(frame);
+        }
+        return result;
+    }
+
+    static class SimpleServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase {
+
+        @Override
+        public void unaryRpc(SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            responseObserver.onNext(SimpleResponse.newBuilder()
+                    .setResponseMessage("Hello " + request.getRequestMessage())
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void serverStreamingRpc(SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            for (int i = 0; i < 2; i++) {
+                responseObserver.onNext(SimpleResponse.newBuilder()
+                        .setResponseMessage("Hello " + request.getRequestMessage() + " " + i)
+                        .build());
+            }
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -2,21 +2,43 @@ package grpcstarter.extensions.transcoding;
 
 import static grpcstarter.server.GrpcContextKeys.ResponseMetadataModifier;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.springframework.test.util.TestSocketUtils.findAvailableTcpPort;
 import static transcoding.TranscoderTest.SimpleRequest;
 import static transcoding.TranscoderTest.SimpleResponse;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
 import com.google.protobuf.StringValue;
 import io.grpc.Metadata;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.client.RestTestClient;
@@ -26,6 +48,8 @@ import transcoding.TranscoderTest;
 class JsonTranscoderIT {
 
     final RestTestClient client = RestTestClient.bindToServer().build();
+    final HttpClient httpClient =
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
 
     @ParameterizedTest
     @ValueSource(strings = {"SERVLET", "REACTIVE"})
@@ -192,10 +216,314 @@ class JsonTranscoderIT {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testUseDirectDispatch_thenTranscodingWorks(String webType) {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.direct-dispatch=true")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .body("""
+                            {
+                                "requestMessage": "Hi"
+                            }
+                            """)
+                    .exchange();
+
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectHeader().contentType(MediaType.APPLICATION_JSON);
+            resp.expectHeader().valueEquals("request-id", "001");
+            resp.expectBody(String.class).isEqualTo("""
+                    {"responseMessage":"Hi, Hi"}""");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BLOCKING", "ASYNC"})
+    void testServletUnaryMode_thenTranscodingWorks(String mode) {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.servlet-unary-mode=" + mode)
+                .web(WebApplicationType.SERVLET)
+                .run()) {
+
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .body("""
+                            {
+                                "requestMessage": "Hi"
+                            }
+                            """)
+                    .exchange();
+
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectHeader().contentType(MediaType.APPLICATION_JSON);
+            resp.expectHeader().valueEquals("request-id", "001");
+            resp.expectBody(String.class).isEqualTo("""
+                    {"responseMessage":"Hi, Hi"}""");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testRequestBodyTooLarge_thenReturn413(String webType) throws Exception {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.max-request-body-size=64B")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            var body = "{\"requestMessage\": \"" + "a".repeat(100) + "\"}";
+
+            // Content-Length exceeds the limit
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body)
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+
+            // chunked, no Content-Length, the limit is enforced while the body is parsed
+            var response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/unaryrpc"))
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .POST(HttpRequest.BodyPublishers.ofInputStream(
+                                    () -> new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(response.statusCode()).isEqualTo(HttpStatus.CONTENT_TOO_LARGE.value());
+
+            // within the limit
+            resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"requestMessage\": \"Hi\"}")
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testClientStreamingOverNdjson(String webType) throws Exception {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            // one request message per line, blank lines are skipped
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/clientstreaming")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body("""
+                            {"requestMessage": "a"}
+                            {"requestMessage": "b"}
+
+                            {"requestMessage": "c"}
+                            """)
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectHeader().contentType(MediaType.APPLICATION_JSON);
+            resp.expectBody(String.class).isEqualTo("""
+                    {"responseMessage":"Hi, a,b,c"}""");
+
+            // an invalid line fails the request and cancels the call
+            resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/clientstreaming")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body("""
+                            {"requestMessage": "a"}
+                            {"requestMessage": }
+                            {"requestMessage": "c"}
+                            """)
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(ctx.getBean(Cfg.class).clientStreamingCancelled.await(5, TimeUnit.SECONDS))
+                    .isTrue();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testServerStreamingOverNdjson_thenFlushInBatches(String webType) {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.ndjson.flush-messages=2")
+                .properties("grpc.transcoding.ndjson.flush-interval=200ms")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            // the stream is kept open after 3 messages, they must reach the client before it completes
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                var response = httpClient.send(
+                        HttpRequest.newBuilder(URI.create(
+                                        "http://localhost:" + port + "/v1/serverstreaming?requestMessage=hold"))
+                                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE)
+                                .GET()
+                                .build(),
+                        HttpResponse.BodyHandlers.ofLines());
+                assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+                assertThat(response.headers().firstValue(HttpHeaders.CONTENT_TYPE))
+                        .hasValueSatisfying(v -> assertThat(v).startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+
+                var lines = response.body().iterator();
+                // flushed by flush-messages
+                assertThat(lines.next()).isEqualTo("""
+                        {"responseMessage":"Hi, hold"}""");
+                assertThat(lines.next()).isEqualTo("""
+                        {"responseMessage":"Hi, hold"}""");
+                // flushed by flush-interval
+                assertThat(lines.next()).isEqualTo("""
+                        {"responseMessage":"Hi, hold"}""");
+
+                ctx.getBean(Cfg.class).serverStreamingRelease.countDown();
+                assertThat(lines.hasNext()).isFalse();
+            });
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testRawBytesResponseBody(String webType) {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.raw-bytes-response-body=true")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            // each chunk is written as is
+            var resp = client.get()
+                    .uri("http://localhost:" + port + "/v1/bytesstreaming?requestMessage=Hi")
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM);
+            // taken from the x-content-length response metadata, sent over a Netty channel
+            resp.expectHeader().contentLength(BYTES_CHUNKS_LENGTH);
+            resp.expectHeader().doesNotExist("x-content-length");
+            resp.expectBody(String.class).isEqualTo(String.join("", BYTES_CHUNKS));
+
+            // error before the first chunk, the response is not committed yet
+            resp = client.get()
+                    .uri("http://localhost:" + port + "/v1/bytesstreaming?requestMessage=err")
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERVLET", "REACTIVE"})
+    void testMetrics(String webType) {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class, MeterRegistryCfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.metrics.enabled=true")
+                .web(WebApplicationType.valueOf(webType))
+                .run()) {
+
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .body("{\"requestMessage\":\"Hi\"}")
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectBody(String.class).isEqualTo("{\"responseMessage\":\"Hi, Hi\"}");
+
+            var registry = ctx.getBean(MeterRegistry.class);
+            var method = "transcoding.SimpleService/UnaryRpc";
+            for (var phase : List.of("parse", "build", "call", "encode")) {
+                var timer = registry.find(MicrometerTranscodingMetrics.PHASE_DURATION)
+                        .tags("method", method, "phase", phase)
+                        .timer();
+                assertThat(timer).as(phase).isNotNull();
+                assertThat(timer.count()).as(phase).isEqualTo(1);
+            }
+            var request = registry.find(MicrometerTranscodingMetrics.PAYLOAD_SIZE)
+                    .tags("method", method, "payload", "request")
+                    .summary();
+            assertThat(request).isNotNull();
+            assertThat(request.count()).isEqualTo(1);
+            assertThat(request.totalAmount()).isEqualTo("{\"requestMessage\":\"Hi\"}".length());
+            var response = registry.find(MicrometerTranscodingMetrics.PAYLOAD_SIZE)
+                    .tags("method", method, "payload", "response")
+                    .summary();
+            assertThat(response).isNotNull();
+            assertThat(response.count()).isEqualTo(1);
+            assertThat(response.totalAmount()).isEqualTo("{\"responseMessage\":\"Hi, Hi\"}".length());
+        }
+    }
+
+    @Test
+    void testBidiStreamingOverWebSocket() throws Exception {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("grpc.server.port=0")
+                .web(WebApplicationType.REACTIVE)
+                .run()) {
+
+            var received = new LinkedBlockingQueue<String>();
+            var webSocket = httpClient
+                    .newWebSocketBuilder()
+                    .buildAsync(
+                            URI.create("ws://localhost:" + port + "/transcoding.SimpleService/BidiStreamingRpc"),
+                            new WebSocket.Listener() {
+                                @Override
+                                public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+                                    received.add(data.toString());
+                                    ws.request(1);
+                                    return null;
+                                }
+                            })
+                    .get(5, TimeUnit.SECONDS);
+
+            // each text message is a request message, each response message is sent back as a text message
+            webSocket.sendText("{\"requestMessage\": \"a\"}", true).get(5, TimeUnit.SECONDS);
+            assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo("""
+                    {"responseMessage":"Hi, a"}""");
+
+            webSocket.sendText("{\"requestMessage\": \"b\"}", true).get(5, TimeUnit.SECONDS);
+            assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo("""
+                    {"responseMessage":"Hi, b"}""");
+
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    static final List<String> BYTES_CHUNKS = List.of("Hello", ", ", "World!");
+    static final long BYTES_CHUNKS_LENGTH = String.join("", BYTES_CHUNKS).length();
+
+    @Configuration(proxyBeanMethods = false)
+    static class MeterRegistryCfg {
+
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @Configuration(proxyBeanMethods = false)
     @EnableAutoConfiguration
     static class Cfg extends SimpleServiceGrpc.SimpleServiceImplBase {
 
+        final CountDownLatch clientStreamingCancelled = new CountDownLatch(1);
+        final CountDownLatch serverStreamingRelease = new CountDownLatch(1);
+
         @Override
         public void unaryRpc(SimpleRequest request, StreamObserver<SimpleResponse> ro) {
             if (request.getRequestMessage().startsWith("err")) {
@@ -213,15 +541,87 @@ class JsonTranscoderIT {
 
         @Override
         public void serverStreamingRpc(SimpleRequest request, StreamObserver<SimpleResponse> ro) {
-            ro.onNext(SimpleResponse.newBuilder()
-                    .setResponseMessage("Hi, " + request.getRequestMessage())
-                    .build());
-            ro.onNext(SimpleResponse.newBuilder()
-                    .setResponseMessage("Hi, " + request.getRequestMessage())
-                    .build());
+            boolean hold = request.getRequestMessage().equals("hold");
+            for (int i = 0; i < (hold ? 3 : 2); i++) {
+                ro.onNext(SimpleResponse.newBuilder()
+                        .setResponseMessage("Hi, " + request.getRequestMessage())
+                        .build());
+            }
+            if (hold) {
+                try {
+                    serverStreamingRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ro.onCompleted();
+        }
+
+        @Override
+        public void bytesStreamingRpc(SimpleRequest request, StreamObserver<TranscoderTest.BytesResponse> ro) {
+            if (request.getRequestMessage().equals("err")) {
+                ro.onError(Status.NOT_FOUND.withDescription("Not found").asRuntimeException());
+                return;
+            }
+
+            ResponseMetadataModifier.addConsumer(metadata -> metadata.put(
+                    Metadata.Key.of("x-content-length", Metadata.ASCII_STRING_MARSHALLER),
+                    String.valueOf(BYTES_CHUNKS_LENGTH)));
+
+            for (var chunk : BYTES_CHUNKS) {
+                ro.onNext(TranscoderTest.BytesResponse.newBuilder()
+                        .setData(ByteString.copyFromUtf8(chunk))
+                        .build());
+            }
             ro.onCompleted();
         }
 
+        @Override
+        public StreamObserver<SimpleRequest> clientStreamingRpc(StreamObserver<SimpleResponse> ro) {
+            var messages = new ArrayList<String>();
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(SimpleRequest value) {
+                    messages.add(value.getRequestMessage());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    if (Status.fromThrowable(t).getCode() == Status.Code.CANCELLED) {
+                        clientStreamingCancelled.countDown();
+                    }
+                }
+
+                @Override
+                public void onCompleted() {
+                    ro.onNext(SimpleResponse.newBuilder()
+                            .setResponseMessage("Hi, " + String.join(",", messages))
+                            .build());
+                    ro.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<SimpleRequest> bidiStreamingRpc(StreamObserver<SimpleResponse> ro) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(SimpleRequest value) {
+                    ro.onNext(SimpleResponse.newBuilder()
+                            .setResponseMessage("Hi, " + value.getRequestMessage())
+                            .build());
+                }
+
+                @Override
+                public void onError(Throwable t) {}
+
+                @Override
+                public void onCompleted() {
+                    ro.onCompleted();
+                }
+            };
+        }
+
         @Override
         public void useAnotherPackageRequestRpc(Empty request, StreamObserver<StringValue> responseObserver) {
             responseObserver.onNext(StringValue.of("Hello"));
@@ -0,0 +1,104 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.api.HttpRule;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import transcoding.SimpleServiceGrpc;
+import transcoding.TranscoderTest;
+
+/**
+ * {@link RouteIndex} tester.
+ */
+class RouteIndexTest {
+
+    static final Util.Route unary = new Util.Route(
+            HttpRule.getDefaultInstance(),
+            SimpleServiceGrpc.getUnaryRpcMethod(),
+            TranscoderTest.getDescriptor().findServiceByName("SimpleService").findMethodByName("UnaryRpc"));
+    static final Util.Route serverStreaming = new Util.Route(
+            HttpRule.getDefaultInstance(),
+            SimpleServiceGrpc.getServerStreamingRpcMethod(),
+            TranscoderTest.getDescriptor().findServiceByName("SimpleService").findMethodByName("ServerStreamingRpc"));
+
+    /**
+     * {@link RouteIndex#templateSegments(String)}
+     */
+    @Test
+    void testTemplateSegments() {
+        assertThat(RouteIndex.templateSegments("/")).isEmpty();
+        assertThat(RouteIndex.templateSegments("/v1/shelves")).containsExactly("v1", "shelves");
+        assertThat(RouteIndex.templateSegments("/v1/shelves/{shelf}")).containsExactly("v1", "shelves", "*");
+        assertThat(RouteIndex.templateSegments("/v1/{name=shelves/*/books/*}"))
+                .containsExactly("v1", "shelves", "*", "books", "*");
+        assertThat(RouteIndex.templateSegments("/v1/{name=files/**}")).containsExactly("v1", "files", "**");
+        assertThat(RouteIndex.templateSegments("/v1/books:batchGet")).containsExactly("v1", "books");
+        assertThat(RouteIndex.templateSegments("/v1/{name=books/*}:publish")).containsExactly("v1", "books", "*");
+    }
+
+    @Test
+    void testMatch() {
+        var index = new RouteIndex();
+        index.add(HttpMethod.GET, "/v1/shelves/{shelf}", unary);
+        index.add(HttpMethod.GET, "/v1/shelves/{shelf}/books/{book}", serverStreaming);
+
+        var match = index.match(HttpMethod.GET, "/v1/shelves/1");
+        assertThat(match).isNotNull();
+        assertThat(match.route()).isSameAs(unary);
+        assertThat(match.pathVariables()).isEqualTo(Map.of("shelf", "1"));
+
+        match = index.match(HttpMethod.GET, "/v1/shelves/1/books/2/");
+        assertThat(match).isNotNull();
+        assertThat(match.route()).isSameAs(serverStreaming);
+        assertThat(match.pathVariables()).isEqualTo(Map.of("shelf", "1", "book", "2"));
+
+        assertThat(index.match(HttpMethod.POST, "/v1/shelves/1")).isNull();
+        assertThat(index.match(HttpMethod.GET, "/v1/shelves")).isNull();
+        assertThat(index.match(HttpMethod.GET, "/v1/shelves/1/books")).isNull();
+        assertThat(index.match(HttpMethod.GET, "/v2/shelves/1")).isNull();
+    }
+
+    @Test
+    void testMatch_whenMultipleBindingsMatch_thenFirstRegisteredWins() {
+        var index = new RouteIndex();
+        index.add(HttpMethod.GET, "/v1/{name=shelves/*}", unary);
+        index.add(HttpMethod.GET, "/v1/shelves/first", serverStreaming);
+
+        var match = index.match(HttpMethod.GET, "/v1/shelves/first");
+        assertThat(match).isNotNull();
+        assertThat(match.route()).isSameAs(unary);
+        assertThat(match.pathVariables()).isEqualTo(Map.of("name", "shelves/first"));
+    }
+
+    @Test
+    void testMatch_whenUsingPathWildcard() {
+        var index = new RouteIndex();
+        index.add(HttpMethod.GET, "/v1/{name=files/**}", unary);
+
+        for (var path : List.of("/v1/files/a", "/v1/files/a/b/c")) {
+            var match = index.match(HttpMethod.GET, path);
+            assertThat(match).isNotNull();
+            assertThat(match.route()).isSameAs(unary);
+            assertThat(match.pathVariables()).containsEntry("name", path.substring("/v1/".length()));
+        }
+    }
+
+    @Test
+    void testMatch_whenUsingCustomVerb() {
+        var index = new RouteIndex();
+        index.add(HttpMethod.POST, "/v1/{name=books/*}", unary);
+        index.add(HttpMethod.POST, "/v1/{name=books/*}:publish", serverStreaming);
+
+        var match = index.match(HttpMethod.POST, "/v1/books/1:publish");
+        assertThat(match).isNotNull();
+        assertThat(match.route()).isSameAs(serverStreaming);
+        assertThat(match.pathVariables()).containsEntry("name", "books/1");
+
+        match = index.match(HttpMethod.POST, "/v1/books/1");
+        assertThat(match).isNotNull();
+        assertThat(match.route()).isSameAs(unary);
+    }
+}
@@ -0,0 +1,75 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.TestSocketUtils.findAvailableTcpPort;
+
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import transcoding.SimpleServiceGrpc;
+import transcoding.TranscoderTest.SimpleRequest;
+import transcoding.TranscoderTest.SimpleResponse;
+
+/**
+ * {@link SharedPortGrpcFilter} tester.
+ */
+class SharedPortGrpcFilterIT {
+
+    @Test
+    void testGrpcAndTranscodingOnWebServerPort() {
+        int port = findAvailableTcpPort();
+        try (var ctx = new SpringApplicationBuilder(Cfg.class)
+                .properties("server.port=" + port)
+                .properties("server.http2.enabled=true")
+                .properties("grpc.server.port=0")
+                .properties("grpc.transcoding.shared-port.enabled=true")
+                .web(WebApplicationType.SERVLET)
+                .run()) {
+
+            // gRPC over h2c on the web server port
+            var channel = Grpc.newChannelBuilderForAddress("localhost", port, InsecureChannelCredentials.create())
+                    .build();
+            try {
+                var response = SimpleServiceGrpc.newBlockingStub(channel)
+                        .unaryRpc(SimpleRequest.newBuilder()
+                                .setRequestMessage("Hi")
+                                .build());
+                assertThat(response.getResponseMessage()).isEqualTo("Hi, Hi");
+            } finally {
+                channel.shutdownNow();
+            }
+
+            // other requests still go to the transcoders
+            var resp = RestTestClient.bindToServer()
+                    .build()
+                    .post()
+                    .uri("http://localhost:" + port + "/v1/unaryrpc")
+                    .body("""
+                            {"requestMessage": "Hi"}""")
+                    .exchange();
+            resp.expectStatus().isEqualTo(HttpStatus.OK);
+            resp.expectBody(String.class).isEqualTo("""
+                    {"responseMessage":"Hi, Hi"}""");
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration
+    static class Cfg extends SimpleServiceGrpc.SimpleServiceImplBase {
+
+        @Override
+        public void unaryRpc(SimpleRequest request, StreamObserver<SimpleResponse> ro) {
+            ro.onNext(SimpleResponse.newBuilder()
+                    .setResponseMessage("Hi, " + request.getRequestMessage())
+                    .build());
+            ro.onCompleted();
+        }
+    }
+}
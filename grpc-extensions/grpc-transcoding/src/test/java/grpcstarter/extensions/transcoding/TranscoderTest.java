@@ -159,6 +159,33 @@ class TranscoderTest {
         assertThat(request.getInt32Wrapper().getValue()).isEqualTo(1);
     }
 
+    @Test
+    @SneakyThrows
+    void testProtobufBody() {
+        var body = transcoding.TranscoderTest.SimpleRequest.newBuilder()
+                .setRequestMessage("x1")
+                .setSomeMessage("Hi")
+                .build()
+                .toByteString();
+
+        Transcoder transcoder = Transcoder.create(
+                new Transcoder.Variable(
+                        body, Map.of("some_message", new String[] {"x2"}), Map.of("requestMessage", "y3")),
+                true);
+        var builder = transcoding.TranscoderTest.SimpleRequest.newBuilder();
+        transcoder.into(builder, HttpRule.newBuilder().setBody("*").build());
+
+        assertThat(builder.getSomeMessage()).isEqualTo("Hi");
+        assertThat(builder.getRequestMessage()).isEqualTo("y3"); // path variable takes precedence
+
+        // empty body is a no-op
+        transcoder = Transcoder.create(new Transcoder.Variable(ByteString.EMPTY, Map.of(), Map.of()), true);
+        builder = transcoding.TranscoderTest.SimpleRequest.newBuilder();
+        transcoder.into(builder, HttpRule.newBuilder().setBody("*").build());
+
+        assertThat(builder.build()).isEqualTo(transcoding.TranscoderTest.SimpleRequest.getDefaultInstance());
+    }
+
     private static transcoding.TranscoderTest.SimpleRequest buildRequest(
             Map<String, String> pathVariables, String body, Map<String, String[]> parameterMap) {
         return buildRequest(pathVariables, body, parameterMap, HttpRule.getDefaultInstance());
@@ -0,0 +1,135 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.google.protobuf.Message;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import transcoding.TranscoderTest;
+
+/**
+ * {@link TranscodingBatch} tester.
+ */
+class TranscodingBatchTest {
+
+    static final String UNARY_PATH = "/" + RouteIndexTest.unary.invokeMethod().getFullMethodName();
+    static final String SERVER_STREAMING_PATH =
+            "/" + RouteIndexTest.serverStreaming.invokeMethod().getFullMethodName();
+
+    final GrpcTranscodingProperties.Batch properties = new GrpcTranscodingProperties.Batch();
+    final TranscodingBatch batch = new TranscodingBatch(
+            properties,
+            Map.of(UNARY_PATH, RouteIndexTest.unary, SERVER_STREAMING_PATH, RouteIndexTest.serverStreaming),
+            new RouteIndex());
+
+    @Test
+    void testParse() {
+        var items = batch.parse(body("[{\"path\":\"/a\"},{\"method\":\"GET\",\"path\":\"/b\",\"body\":{\"x\":1}}]"));
+
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).method()).isNull();
+        assertThat(items.get(1).method()).isEqualTo("GET");
+        assertThat(items.get(1).body()).isNotNull();
+
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> batch.parse(body("{}")))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+
+        properties.setMaxItems(1);
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> batch.parse(body("[{\"path\":\"/a\"},{\"path\":\"/b\"}]")))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void testToRequest() {
+        var request = batch.toRequest(new TranscodingBatch.Item(null, UNARY_PATH + "?requestMessage=Hi%21", null));
+
+        assertThat(request.route()).isSameAs(RouteIndexTest.unary);
+        assertThat(request.message())
+                .isEqualTo(TranscoderTest.SimpleRequest.newBuilder()
+                        .setRequestMessage("Hi!")
+                        .build());
+
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> batch.toRequest(new TranscodingBatch.Item("GET", UNARY_PATH, null)))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> batch.toRequest(new TranscodingBatch.Item(null, SERVER_STREAMING_PATH, null)))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void testExecute() {
+        properties.setParallelism(2);
+        var items = List.of(
+                new TranscodingBatch.Item(null, UNARY_PATH + "?requestMessage=1", null),
+                new TranscodingBatch.Item(null, "/not/found", null),
+                new TranscodingBatch.Item(null, UNARY_PATH + "?requestMessage=3", null),
+                new TranscodingBatch.Item(null, UNARY_PATH + "?requestMessage=4", null));
+
+        var calls = new ArrayList<CompletableFuture<Message>>();
+        var result = batch.execute(items, r -> {
+            var call = new CompletableFuture<Message>();
+            calls.add(call);
+            return call;
+        });
+
+        // the second item fails without a call, so the third one starts
+        assertThat(calls).hasSize(2);
+        calls.get(1).completeExceptionally(Status.NOT_FOUND.asRuntimeException());
+        assertThat(calls).hasSize(3);
+        calls.get(0).complete(TranscoderTest.SimpleResponse.getDefaultInstance());
+        assertThat(result).isNotDone();
+        calls.get(2).complete(TranscoderTest.SimpleResponse.getDefaultInstance());
+
+        assertThat(result).isDone();
+        var outcomes = result.join();
+        assertThat(outcomes).hasSize(4);
+        assertThat(outcomes.get(0).response()).isNotNull();
+        assertThat(outcomes.get(1).error()).isInstanceOf(ResponseStatusException.class);
+        assertThat(outcomes.get(2).error()).isInstanceOf(StatusRuntimeException.class);
+        assertThat(outcomes.get(3).response()).isNotNull();
+    }
+
+    @Test
+    void testExecuteCompletedCallsWithoutRecursion() {
+        properties.setParallelism(1);
+        var items = Collections.nCopies(
+                100_000, new TranscodingBatch.Item(null, UNARY_PATH + "?requestMessage=Hi", null));
+
+        // every call completes synchronously, a recursive worker would overflow the stack
+        var result = batch.execute(
+                items, r -> CompletableFuture.completedFuture(TranscoderTest.SimpleResponse.getDefaultInstance()));
+
+        assertThat(result).isDone();
+        assertThat(result.join())
+                .hasSize(items.size())
+                .allSatisfy(o -> assertThat(o.response()).isNotNull());
+    }
+
+    @Test
+    void testToJson() {
+        var json = TranscodingBatch.toJson(List.of(
+                new TranscodingBatch.Result(200, List.of("a"), null),
+                new TranscodingBatch.Result(404, null, "Not \"found\"")));
+
+        assertThat(json)
+                .isEqualTo("[{\"status\":200,\"body\":[\"a\"]},{\"status\":404,\"error\":\"Not \\\"found\\\"\"}]");
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,102 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * {@link TranscodingConcurrencyLimiter} tester.
+ */
+class TranscodingConcurrencyLimiterTest {
+
+    @Test
+    void testRouteLimit() {
+        var properties = new GrpcTranscodingProperties.ConcurrencyLimit();
+        properties.getRoutes().put(RouteIndexTest.unary.invokeMethod().getFullMethodName(), 1);
+        properties.setRetryAfter(Duration.ofMillis(1500));
+        var limiter = new TranscodingConcurrencyLimiter(properties);
+
+        var first = new RecordingCall();
+        limiter.limit(first, RouteIndexTest.unary).start(new ClientCall.Listener<>() {}, new Metadata());
+        assertThat(limiter.getInFlightCount()).isEqualTo(1);
+
+        assertThatExceptionOfType(TranscodingRuntimeException.class)
+                .isThrownBy(() -> limiter.limit(new RecordingCall(), RouteIndexTest.unary)
+                        .start(new ClientCall.Listener<>() {}, new Metadata()))
+                .satisfies(e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+                });
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        // other routes are not limited
+        var other = new RecordingCall();
+        assertThat(limiter.limit(other, RouteIndexTest.serverStreaming)).isSameAs(other);
+
+        // the permit is returned when the call closes
+        first.close(Status.OK);
+        assertThat(limiter.getInFlightCount()).isZero();
+        limiter.limit(new RecordingCall(), RouteIndexTest.unary).start(new ClientCall.Listener<>() {}, new Metadata());
+        assertThat(limiter.getInFlightCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testGlobalLimit() {
+        var properties = new GrpcTranscodingProperties.ConcurrencyLimit();
+        properties.setMaxInFlight(2);
+        var limiter = new TranscodingConcurrencyLimiter(properties);
+
+        var calls = new ArrayList<RecordingCall>();
+        for (var route : List.of(RouteIndexTest.unary, RouteIndexTest.serverStreaming)) {
+            var call = new RecordingCall();
+            limiter.limit(call, route).start(new ClientCall.Listener<>() {}, new Metadata());
+            calls.add(call);
+        }
+
+        assertThatExceptionOfType(TranscodingRuntimeException.class)
+                .isThrownBy(() -> limiter.limit(new RecordingCall(), RouteIndexTest.unary)
+                        .start(new ClientCall.Listener<>() {}, new Metadata()));
+
+        calls.get(1).close(Status.CANCELLED);
+        limiter.limit(new RecordingCall(), RouteIndexTest.unary).start(new ClientCall.Listener<>() {}, new Metadata());
+        assertThat(limiter.getInFlightCount()).isEqualTo(2);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+    }
+
+    static class RecordingCall extends ClientCall<Object, Object> {
+
+        private @Nullable Listener<Object> listener;
+
+        void close(Status status) {
+            Objects.requireNonNull(listener).onClose(status, new Metadata());
+        }
+
+        @Override
+        public void start(Listener<Object> responseListener, Metadata headers) {
+            this.listener = responseListener;
+        }
+
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void cancel(@Nullable String message, @Nullable Throwable cause) {}
+
+        @Override
+        public void halfClose() {}
+
+        @Override
+        public void sendMessage(Object message) {}
+    }
+}
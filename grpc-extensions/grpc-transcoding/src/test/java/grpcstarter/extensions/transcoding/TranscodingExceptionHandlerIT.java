@@ -2,6 +2,7 @@ package grpcstarter.extensions.transcoding;
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -16,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.client.RestTestClient;
 import org.springframework.web.servlet.function.ServerResponse;
 
@@ -24,11 +26,14 @@ import org.springframework.web.servlet.function.ServerResponse;
  */
 class TranscodingExceptionHandlerIT {
 
+    static final String BATCH_REQUEST = "[{\"path\":\"/grpc.testing.SimpleService/UnaryRpc\",\"body\":{}}]";
+    static final String BATCH_RESPONSE = "[{\"status\":400,\"body\":\"Ops!\",\"error\":\"INVALID_ARGUMENT\"}]";
+
     @Nested
     @SpringBootTest(
             classes = TranscodingExceptionHandlerIT.Cfg.class,
             webEnvironment = RANDOM_PORT,
-            properties = "spring.main.web-application-type=servlet")
+            properties = {"spring.main.web-application-type=servlet", "grpc.transcoding.batch.enabled=true"})
     class Servlet {
 
         @LocalServerPort
@@ -45,13 +50,25 @@ class TranscodingExceptionHandlerIT {
             response.expectStatus().isEqualTo(BAD_REQUEST);
             response.expectBody(String.class).isEqualTo("Ops!");
         }
+
+        @Test
+        void testBatchItemKeepsResolvedBody() {
+            var response = client.post()
+                    .uri("http://localhost:" + port + "/transcoding/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BATCH_REQUEST)
+                    .exchange();
+
+            response.expectStatus().isEqualTo(OK);
+            response.expectBody(String.class).isEqualTo(BATCH_RESPONSE);
+        }
     }
 
     @Nested
     @SpringBootTest(
             classes = TranscodingExceptionHandlerIT.Cfg.class,
             webEnvironment = RANDOM_PORT,
-            properties = "spring.main.web-application-type=reactive")
+            properties = {"spring.main.web-application-type=reactive", "grpc.transcoding.batch.enabled=true"})
     class Reactive {
 
         @LocalServerPort
@@ -68,6 +85,18 @@ class TranscodingExceptionHandlerIT {
             resp.expectStatus().isEqualTo(BAD_REQUEST);
             resp.expectBody(String.class).isEqualTo("Ops!");
         }
+
+        @Test
+        void testBatchItemKeepsResolvedBody() {
+            var resp = client.post()
+                    .uri("http://localhost:" + port + "/transcoding/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BATCH_REQUEST)
+                    .exchange();
+
+            resp.expectStatus().isEqualTo(OK);
+            resp.expectBody(String.class).isEqualTo(BATCH_RESPONSE);
+        }
     }
 
     @Configuration(proxyBeanMethods = false)
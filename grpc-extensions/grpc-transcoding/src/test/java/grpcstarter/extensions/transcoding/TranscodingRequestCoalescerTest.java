@@ -0,0 +1,107 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.grpc.Status;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import transcoding.TranscoderTest;
+
+/**
+ * {@link TranscodingRequestCoalescer} tester.
+ */
+class TranscodingRequestCoalescerTest {
+
+    static final TranscoderTest.SimpleRequest request =
+            TranscoderTest.SimpleRequest.newBuilder().setRequestMessage("Hi").build();
+
+    @Test
+    void testGetKey() {
+        var properties = new GrpcTranscodingProperties.RequestCoalescing();
+        var coalescer = new TranscodingRequestCoalescer(properties, new DefaultHeaderConverter());
+
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders()))
+                .isNotNull();
+        assertThat(coalescer.getKey(HttpMethod.POST, RouteIndexTest.unary, request, new HttpHeaders()))
+                .isNull();
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.serverStreaming, request, new HttpHeaders()))
+                .isNull();
+
+        properties.getRoutes().add("foo.Bar/Baz");
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders()))
+                .isNull();
+    }
+
+    @Test
+    void testKeyIncludesForwardedHeaders() {
+        var coalescer = new TranscodingRequestCoalescer(
+                new GrpcTranscodingProperties.RequestCoalescing(), new DefaultHeaderConverter());
+
+        var alice = new HttpHeaders();
+        alice.add(HttpHeaders.AUTHORIZATION, "Bearer alice");
+        alice.add("X-Tenant", "a");
+        alice.add("traceparent", "00-1-1-01");
+        alice.add(HttpHeaders.ACCEPT, "application/json");
+
+        // same forwarded headers, the excluded and the not forwarded headers don't matter
+        var sameAsAlice = new HttpHeaders();
+        sameAsAlice.add("x-tenant", "a");
+        sameAsAlice.add(HttpHeaders.AUTHORIZATION, "Bearer alice");
+        sameAsAlice.add("traceparent", "00-2-2-01");
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, sameAsAlice))
+                .isEqualTo(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, alice));
+
+        // any other forwarded header makes a different key
+        var otherTenant = new HttpHeaders();
+        otherTenant.add(HttpHeaders.AUTHORIZATION, "Bearer alice");
+        otherTenant.add("X-Tenant", "b");
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, otherTenant))
+                .isNotEqualTo(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, alice));
+
+        var bob = new HttpHeaders();
+        bob.add(HttpHeaders.AUTHORIZATION, "Bearer bob");
+        bob.add("X-Tenant", "a");
+        assertThat(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, bob))
+                .isNotEqualTo(coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, alice));
+    }
+
+    @Test
+    void testExecute() {
+        var coalescer = new TranscodingRequestCoalescer(
+                new GrpcTranscodingProperties.RequestCoalescing(), new DefaultHeaderConverter());
+        var key = coalescer.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders());
+        assertThat(key).isNotNull();
+
+        var calls = new AtomicInteger();
+        var call = new CompletableFuture<TranscodingRequestCoalescer.Response>();
+        var first = coalescer.execute(key, () -> {
+            calls.incrementAndGet();
+            return call;
+        });
+        var second = coalescer.execute(key, () -> {
+            calls.incrementAndGet();
+            return call;
+        });
+
+        assertThat(calls).hasValue(1);
+        assertThat(second).isSameAs(first);
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(1);
+        assertThat(coalescer.getInFlightCount()).isEqualTo(1);
+
+        var response =
+                new TranscodingRequestCoalescer.Response(TranscoderTest.SimpleResponse.getDefaultInstance(), null);
+        call.complete(response);
+        assertThat(first).isCompletedWithValue(response);
+        assertThat(coalescer.getInFlightCount()).isZero();
+
+        // completed calls are not reused
+        var third = coalescer.execute(
+                key, () -> CompletableFuture.failedFuture(Status.UNAVAILABLE.asRuntimeException()));
+        assertThat(third).isCompletedExceptionally();
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(1);
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+}
@@ -0,0 +1,88 @@
+package grpcstarter.extensions.transcoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.ByteString;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import transcoding.TranscoderTest;
+
+/**
+ * {@link TranscodingResponseCache} tester.
+ */
+class TranscodingResponseCacheTest {
+
+    static final TranscoderTest.SimpleRequest request =
+            TranscoderTest.SimpleRequest.newBuilder().setRequestMessage("Hi").build();
+
+    @Test
+    void testGetKey() {
+        var cache = new TranscodingResponseCache(new GrpcTranscodingProperties.ResponseCache());
+
+        assertThat(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders(), false))
+                .isNotNull();
+        assertThat(cache.getKey(HttpMethod.POST, RouteIndexTest.unary, request, new HttpHeaders(), false))
+                .isNull();
+        assertThat(cache.getKey(HttpMethod.GET, RouteIndexTest.serverStreaming, request, new HttpHeaders(), false))
+                .isNull();
+
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "Bearer a");
+        var key = cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, headers, false);
+        assertThat(key).isEqualTo(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, headers, false));
+        assertThat(key).isNotEqualTo(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, headers, true));
+        headers.set(HttpHeaders.AUTHORIZATION, "Bearer b");
+        assertThat(key).isNotEqualTo(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, headers, false));
+    }
+
+    @Test
+    void testGetKey_whenRoutesConfigured_thenOnlyConfiguredRoutesAreCacheable() {
+        var properties = new GrpcTranscodingProperties.ResponseCache();
+        properties.getRoutes().put("foo.Bar/Baz", Duration.ofSeconds(10));
+        var cache = new TranscodingResponseCache(properties);
+
+        assertThat(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders(), false))
+                .isNull();
+
+        properties.getRoutes().put("transcoding.SimpleService/UnaryRpc", Duration.ofSeconds(10));
+        assertThat(cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders(), false))
+                .isNotNull();
+    }
+
+    @Test
+    void testGetAndPut() throws Exception {
+        var properties = new GrpcTranscodingProperties.ResponseCache();
+        properties.setMaximumSize(1);
+        properties.setTtl(Duration.ofMillis(100));
+        var cache = new TranscodingResponseCache(properties);
+
+        var key1 = cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders(), false);
+        var key2 = cache.getKey(HttpMethod.GET, RouteIndexTest.unary, request, new HttpHeaders(), true);
+        assertThat(key1).isNotNull();
+        assertThat(key2).isNotNull();
+
+        var response = new TranscodingResponseCache.CachedResponse(
+                ByteString.copyFromUtf8("{}"), MediaType.APPLICATION_JSON, new HttpHeaders());
+
+        assertThat(cache.get(key1)).isNull();
+        cache.put(key1, RouteIndexTest.unary, response);
+        assertThat(cache.get(key1)).isSameAs(response);
+
+        // exceeds maximum size, evicts key1
+        cache.put(key2, RouteIndexTest.unary, response);
+        assertThat(cache.get(key1)).isNull();
+        assertThat(cache.get(key2)).isSameAs(response);
+
+        // expired
+        Thread.sleep(150);
+        assertThat(cache.get(key2)).isNull();
+
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(3);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+    }
+}
@@ -3,6 +3,7 @@ package grpcstarter.extensions.transcoding;
 import static grpcstarter.extensions.transcoding.Util.isSimpleValueMessage;
 import static grpcstarter.extensions.transcoding.Util.snakeToPascal;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import com.google.protobuf.BoolValue;
 import com.google.protobuf.ByteString;
@@ -25,7 +26,12 @@ import com.google.protobuf.Value;
 import com.google.protobuf.util.JsonFormat;
 import io.grpc.testing.protobuf.SimpleRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 import transcoding.TranscoderTest;
 
 /**
@@ -174,4 +180,77 @@ class UtilTest {
         descriptor = SimpleRequest.getDescriptor();
         assertThat(Util.getDefaultMessage(descriptor)).isEqualTo(SimpleRequest.getDefaultInstance());
     }
+
+    /**
+     * {@link Util#parseTimeout(String, String)}
+     */
+    @Test
+    void testParseTimeout() {
+        assertThat(Util.parseTimeout("grpc-timeout", "500m")).isEqualTo(Duration.ofMillis(500));
+        assertThat(Util.parseTimeout("grpc-timeout", "2S")).isEqualTo(Duration.ofSeconds(2));
+        assertThat(Util.parseTimeout("grpc-timeout", "10u")).isEqualTo(Duration.ofNanos(10_000));
+        assertThat(Util.parseTimeout("X-Request-Timeout", "500")).isEqualTo(Duration.ofMillis(500));
+        assertThat(Util.parseTimeout("X-Request-Timeout", "5s")).isEqualTo(Duration.ofSeconds(5));
+        assertThat(Util.parseTimeout("X-Request-Timeout", "10m")).isEqualTo(Duration.ofMinutes(10));
+
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> Util.parseTimeout("grpc-timeout", "5x"))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> Util.parseTimeout("X-Request-Timeout", "-1"));
+
+        // TimeoutValue is a positive integer of at most 8 digits
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> Util.parseTimeout("grpc-timeout", "123456789S"))
+                .satisfies(e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> Util.parseTimeout("grpc-timeout", "+5S"));
+        assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> Util.parseTimeout("grpc-timeout", "S"));
+
+        // does not fit in nanoseconds, clamped
+        assertThat(Util.parseTimeout("grpc-timeout", "99999999H")).isEqualTo(Util.MAX_TIMEOUT);
+        assertThat(Util.parseTimeout("X-Request-Timeout", "99999999999d")).isEqualTo(Util.MAX_TIMEOUT);
+    }
+
+    /**
+     * {@link Util#getCallOptions(GrpcTranscodingProperties.Deadline, Util.Route, HttpHeaders)}
+     */
+    @Test
+    void testGetCallOptions() {
+        var deadline = new GrpcTranscodingProperties.Deadline();
+        var headers = new HttpHeaders();
+        headers.add("X-Request-Timeout", "1h");
+
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNull();
+
+        deadline.setDefaultTimeout(Duration.ofSeconds(10));
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNotNull()
+                .satisfies(d -> assertThat(d.timeRemaining(TimeUnit.SECONDS)).isBetween(8L, 10L));
+
+        deadline.getRoutes().put(RouteIndexTest.unary.invokeMethod().getFullMethodName(), Duration.ofSeconds(100));
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNotNull()
+                .satisfies(d -> assertThat(d.timeRemaining(TimeUnit.SECONDS)).isBetween(98L, 100L));
+
+        deadline.setHeader("X-Request-Timeout");
+        deadline.setMaxTimeout(Duration.ofSeconds(30));
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNotNull()
+                .satisfies(d -> assertThat(d.timeRemaining(TimeUnit.SECONDS)).isBetween(28L, 30L));
+
+        // longer than a deadline can hold
+        deadline.setHeader("grpc-timeout");
+        deadline.setMaxTimeout(null);
+        headers.set("grpc-timeout", "99999999H");
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNotNull();
+        deadline.setHeader(null);
+        deadline.setDefaultTimeout(Duration.ofDays(1_000_000));
+        deadline.getRoutes().clear();
+        assertThat(Util.getCallOptions(deadline, RouteIndexTest.unary, headers).getDeadline())
+                .isNotNull();
+    }
 }